@@ -0,0 +1,97 @@
+package des;
+
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of the S-box analysis: RecommendedSboxesE (DDTs, L, R and e of the 8
+// recommended boxes, with its console output), the DDT and the FBCT of a
+// single box, scoring a batch of 16 boxes with SboxBatch (with and without
+// the boomerang uniformity), and generating a random set with
+// sboxesGenerator.
+@BenchmarkMode({org.openjdk.jmh.annotations.Mode.Throughput, org.openjdk.jmh.annotations.Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysisBenchmark {
+	@Param({"standard", "random"})
+	public String sboxes;
+
+	private byte[][] RS;
+	private int[] DDT;
+	private int[] FBCT;
+	private byte[][] batch;
+	private SboxBatch scorer;
+	private byte[][] generated;
+	private Random random;
+	private PrintStream console;
+
+	@Setup
+	public void setUp() {
+		RS = BenchmarkSboxes.named(sboxes);
+		DDT = new int[DifferentialTable.SIZE];
+		FBCT = new int[BoomerangTable.SIZE];
+		// The set twice over, 16 boxes
+		batch = new byte[SboxBatch.LANES][];
+		for(int k=0 ; k < SboxBatch.LANES ; k++) {
+			batch[k] = RS[k & 7];
+		}
+		scorer = new SboxBatch();
+		generated = new byte[8][64];
+		random = new Random(BenchmarkSboxes.SEED);
+		console = BenchmarkSboxes.silenceConsole();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(console);
+	}
+
+	@Benchmark
+	public double[] recommendedSboxesE() {
+		return DES.RecommendedSboxesE();
+	}
+
+	@Benchmark
+	public int[] ddt() {
+		DifferentialTable.compute(RS[0], DDT);
+		return DDT;
+	}
+
+	@Benchmark
+	public int[] fbct() {
+		BoomerangTable.compute(RS[0], FBCT);
+		return FBCT;
+	}
+
+	@Benchmark
+	public int[] batchDifferential() {
+		scorer.score(batch, 0, SboxBatch.LANES, false);
+		return scorer.L;
+	}
+
+	@Benchmark
+	public int[] batchBoomerang() {
+		scorer.score(batch, 0, SboxBatch.LANES, true);
+		return scorer.boomerang;
+	}
+
+	@Benchmark
+	public byte[][] sboxesGenerator() {
+		return DES.sboxesGenerator(generated, random);
+	}
+}
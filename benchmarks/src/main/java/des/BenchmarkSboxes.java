@@ -0,0 +1,48 @@
+package des;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+// Inputs shared by the benchmarks: the S-box sets selected by the "sboxes"
+// parameter and a way to silence the console output of the legacy code
+// (permute, sboxesGenerator, RecommendedSboxesE), whose printing is part of
+// what it costs but would flood the JMH report.
+final class BenchmarkSboxes {
+	// Seed of the "random" set, fixed so every run measures the same boxes
+	static final long SEED = 0x5B0C5EEDL;
+
+	private BenchmarkSboxes() {
+	}
+
+	// "standard" is DES.S, "random" a set of 8 random boxes like RS
+	static byte[][] named(String name) {
+		switch(name) {
+		case "standard":
+			return DES.S;
+		case "random":
+			SplittableRandom random = new SplittableRandom(SEED);
+			byte[][] RS = new byte[8][64];
+			for(byte[] sbox : RS) {
+				Sboxes.random(random, sbox);
+			}
+			return RS;
+		default:
+			throw new IllegalArgumentException("unknown S-box set: " + name);
+		}
+	}
+
+	static PrintStream silenceConsole() {
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		return console;
+	}
+}
@@ -0,0 +1,125 @@
+package des;
+
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Cost of encrypting and decrypting blocks: the int[]-per-bit permute path
+// (including its console output) against BlockEngine and BitslicedEngine.
+// Every operation is one block, so the scores of the paths compare directly.
+@BenchmarkMode({org.openjdk.jmh.annotations.Mode.Throughput, org.openjdk.jmh.annotations.Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CipherBenchmark {
+	@Param({"standard", "random"})
+	public String sboxes;
+
+	// Blocks processed by one invocation of the engine benchmarks; a
+	// multiple of 64 for the bitsliced engine
+	@Param({"64", "4096"})
+	public int blocks;
+
+	private byte[][] RS;
+	private int[] inputBits;
+	private int[] keyBits;
+	private int[] cipherBits;
+	private BlockEngine engine;
+	private BitslicedEngine bitsliced;
+	private KeySchedule key;
+	private long[] roundKeyLanes;
+	private long[] plain;
+	private long[] work;
+	private PrintStream console;
+
+	@Setup
+	public void setUp() {
+		RS = BenchmarkSboxes.named(sboxes);
+		SplittableRandom random = new SplittableRandom(BenchmarkSboxes.SEED);
+		long keyValue = random.nextLong();
+		inputBits = bits(random.nextLong());
+		keyBits = bits(keyValue);
+		engine = new BlockEngine(RS);
+		bitsliced = new BitslicedEngine(RS);
+		key = KeySchedule.of(keyValue);
+		roundKeyLanes = BitslicedEngine.roundKeyLanes(key);
+		plain = new long[blocks];
+		for(int i=0 ; i < blocks ; i++) {
+			plain[i] = random.nextLong();
+		}
+		work = new long[blocks];
+		console = BenchmarkSboxes.silenceConsole();
+		cipherBits = DES.permute(inputBits, keyBits, false, RS);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(console);
+	}
+
+	@Benchmark
+	public int[] permuteEncrypt() {
+		return DES.permute(inputBits, keyBits, false, RS);
+	}
+
+	@Benchmark
+	public int[] permuteDecrypt() {
+		return DES.permute(cipherBits, keyBits, true, RS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(4096)
+	public void engineEncrypt(Blackhole blackhole) {
+		for(int n=0 ; n < 4096 ; n += blocks) {
+			for(int i=0 ; i < blocks ; i++) {
+				blackhole.consume(engine.encrypt(plain[i], key));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(4096)
+	public void engineDecrypt(Blackhole blackhole) {
+		for(int n=0 ; n < 4096 ; n += blocks) {
+			for(int i=0 ; i < blocks ; i++) {
+				blackhole.consume(engine.decrypt(plain[i], key));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(4096)
+	public long[] bitslicedEncrypt() {
+		for(int n=0 ; n < 4096 ; n += blocks) {
+			System.arraycopy(plain, 0, work, 0, blocks);
+			for(int i=0 ; i < blocks ; i += 64) {
+				bitsliced.encryptBlocks(work, i, roundKeyLanes);
+			}
+		}
+		return work;
+	}
+
+	static int[] bits(long value) {
+		int[] bits = new int[64];
+		for(int i=0 ; i < 64 ; i++) {
+			bits[i] = (int) (value >>> (63 - i)) & 1;
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,70 @@
+package des;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of turning 16 hex digits into a block and back: the digit by digit
+// string conversion main used to do against HexCodec.
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HexCodecBenchmark {
+	private String text;
+	private byte[] bytes;
+	private byte[] out;
+	private long block;
+
+	@Setup
+	public void setUp() {
+		text = "0123456789ABCDEF";
+		bytes = text.getBytes(StandardCharsets.US_ASCII);
+		out = new byte[HexCodec.DIGITS];
+		block = 0x85E813540F0AB405L;
+	}
+
+	// The loop main had: every digit becomes a binary string, padded to 4
+	// characters and parsed again bit by bit.
+	@Benchmark
+	public int[] parseStrings() {
+		int[] bits = new int[64];
+		for(int i=0 ; i < 16 ; i++) {
+			String s = Integer.toBinaryString(Integer.parseInt(text.charAt(i) + "", 16));
+			while(s.length() < 4) {
+				s = "0" + s;
+			}
+			for(int j=0 ; j < 4 ; j++) {
+				bits[(4*i)+j] = Integer.parseInt(s.charAt(j) + "");
+			}
+		}
+		return bits;
+	}
+
+	@Benchmark
+	public long parseCharSequence() {
+		return HexCodec.parse(text, 0);
+	}
+
+	@Benchmark
+	public long parseBytes() {
+		return HexCodec.parse(bytes, 0);
+	}
+
+	@Benchmark
+	public byte[] formatBytes() {
+		HexCodec.format(block, out, 0);
+		return out;
+	}
+}
@@ -0,0 +1,51 @@
+package des;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of deriving the 16 round keys of a key: KS on int[] bits against
+// KeySchedule on a long, and against a hit in a CipherCache.
+@BenchmarkMode({org.openjdk.jmh.annotations.Mode.Throughput, org.openjdk.jmh.annotations.Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyScheduleBenchmark {
+	private long key;
+	private int[] keyBits;
+	private CipherCache ciphers;
+	private SboxSet sboxes;
+
+	@Setup
+	public void setUp() {
+		key = 0x133457799BBCDFF1L;
+		keyBits = CipherBenchmark.bits(key);
+		ciphers = new CipherCache(1024, 4, new SboxCache(1));
+		sboxes = SboxSet.of(DES.S);
+	}
+
+	@Benchmark
+	public int[][] KS() {
+		return DES.KS(keyBits);
+	}
+
+	@Benchmark
+	public KeySchedule keySchedule() {
+		return KeySchedule.of(key);
+	}
+
+	@Benchmark
+	public CipherCache.Cipher cachedCipher() {
+		return ciphers.get(key, sboxes);
+	}
+}
@@ -0,0 +1,70 @@
+package des;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of one round: the Fiestel function and the S-box layer of the int[]
+// path against the SP table lookup of BlockEngine.
+@BenchmarkMode({org.openjdk.jmh.annotations.Mode.Throughput, org.openjdk.jmh.annotations.Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundBenchmark {
+	@Param({"standard", "random"})
+	public String sboxes;
+
+	private byte[][] RS;
+	private int[] R;
+	private int[] roundKey;
+	private int[] sBlockInput;
+	private BlockEngine engine;
+	private int r;
+	private long roundKeyValue;
+
+	@Setup
+	public void setUp() {
+		RS = BenchmarkSboxes.named(sboxes);
+		SplittableRandom random = new SplittableRandom(BenchmarkSboxes.SEED);
+		r = random.nextInt();
+		roundKeyValue = random.nextLong() >>> 16;
+		R = new int[32];
+		for(int i=0 ; i < 32 ; i++) {
+			R[i] = (r >>> (31 - i)) & 1;
+		}
+		roundKey = new int[48];
+		sBlockInput = new int[48];
+		for(int i=0 ; i < 48 ; i++) {
+			roundKey[i] = (int) (roundKeyValue >>> (47 - i)) & 1;
+			sBlockInput[i] = random.nextInt(2);
+		}
+		engine = new BlockEngine(RS);
+	}
+
+	@Benchmark
+	public int[] fiestel() {
+		return DES.fiestel(R, roundKey, RS);
+	}
+
+	@Benchmark
+	public int[] sBlock() {
+		return DES.sBlock(sBlockInput, RS);
+	}
+
+	@Benchmark
+	public int engineFiestel() {
+		return engine.fiestel(r, roundKeyValue);
+	}
+}
@@ -0,0 +1,102 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BatchCliTest {
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+
+	private static String run(BatchCli cli, String input) throws IOException, InterruptedException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cli.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private static CipherCache cache() {
+		return new CipherCache(BatchCli.CACHE_SIZE, 16, new SboxCache(1));
+	}
+
+	// Enough records for more chunks than the 2 per worker the reader keeps
+	// in flight, so it has to wait for the oldest and put them back in order;
+	// one line in 1000 is broken in some way, and the last has no new line.
+	private static void assertAnswersInOrder(BatchCli cli, boolean isDecrypt, long seed) throws IOException, InterruptedException {
+		SplittableRandom random = new SplittableRandom(seed);
+		String[] broken = { "0123456789ABCDEF", "0123456789ABCDEF,0123456789ABCDE", "0123456789ABCDEG,0123456789ABCDEF",
+				"0123456789ABCDEF;0123456789ABCDEF", "0123456789ABCDEF,0123456789ABCDEF0" };
+		int lines = 10 * BatchCli.CHUNK_SIZE / 34;
+		long[] keys = random.longs(64).toArray();
+		StringBuilder input = new StringBuilder(34 * lines);
+		long[] expected = new long[lines];
+		int errors = 0;
+		int blanks = 0;
+		for(int i=0 ; i < lines ; i++) {
+			if(i % 1000 == 999) {
+				input.append(broken[(i / 1000) % broken.length]);
+				errors++;
+			} else if(i % 1000 == 500) {
+				blanks++;
+			} else {
+				// Keys come back, so the cache gets hits
+				long key = random.nextInt(4) == 0 ? random.nextLong() : keys[random.nextInt(keys.length)];
+				long block = random.nextLong();
+				HexCodec.append(input, key).append(i % 7 == 0 ? " , " : ",");
+				HexCodec.append(input, block);
+				KeySchedule schedule = KeySchedule.of(key);
+				expected[i] = isDecrypt ? ENGINE.decrypt(block, schedule) : ENGINE.encrypt(block, schedule);
+			}
+			if(i < lines - 1) {
+				input.append(i % 5 == 0 ? "\r\n" : "\n");
+			}
+		}
+
+		String[] output = run(cli, input.toString()).split("\n", -1);
+		// One line per input line, and the last one ended too
+		assertEquals(lines + 1, output.length);
+		assertEquals("", output[lines]);
+		for(int i=0 ; i < lines ; i++) {
+			if(i % 1000 == 999) {
+				assertTrue(output[i].startsWith("error: line " + (i + 1) + ": "), output[i]);
+			} else if(i % 1000 == 500) {
+				assertEquals("", output[i], "line " + (i + 1));
+			} else {
+				assertEquals(HexCodec.append(new StringBuilder(), expected[i]).toString(), output[i], "line " + (i + 1));
+			}
+		}
+		assertEquals(lines - blanks, cli.records());
+		assertEquals(errors, cli.errors());
+	}
+
+	@Test
+	void encryptsInInputOrderOnSeveralThreads() throws IOException, InterruptedException {
+		assertAnswersInOrder(new BatchCli(SboxSet.of(DES.S), cache(), false, 4), false, 1);
+	}
+
+	@Test
+	void decryptsInInputOrderWithoutACache() throws IOException, InterruptedException {
+		assertAnswersInOrder(new BatchCli(SboxSet.of(DES.S), null, true, 3), true, 2);
+	}
+
+	@Test
+	void reportsBadRecordsInPlace() throws IOException, InterruptedException {
+		BatchCli cli = new BatchCli(SboxSet.of(DES.S), cache(), false, 2);
+		String output = run(cli, "133457799BBCDFF1,0123456789ABCDEF\nnot a record\n\n133457799BBCDFF1,0123456789ABCDEF");
+		assertEquals("85E813540F0AB405\nerror: line 2: expected key,text\n\n85E813540F0AB405\n", output);
+		assertEquals(3, cli.records());
+		assertEquals(1, cli.errors());
+	}
+
+	@Test
+	void writesNothingForNoInput() throws IOException, InterruptedException {
+		BatchCli cli = new BatchCli(SboxSet.of(DES.S), null, false, 2);
+		assertEquals("", run(cli, ""));
+		assertEquals(0, cli.records());
+	}
+}
@@ -0,0 +1,79 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BitslicedEngineTest {
+	// The engines compiled from the standard boxes and from random sets
+	private static byte[][][] sets(SplittableRandom random) {
+		byte[][][] sets = new byte[6][][];
+		sets[0] = DES.S;
+		for(int i=1 ; i < sets.length ; i++) {
+			sets[i] = BatchCli.sboxes("random", random.nextLong());
+		}
+		return sets;
+	}
+
+	@Test
+	void matchesBlockEngineWithOneKey() {
+		SplittableRandom random = new SplittableRandom(1);
+		for(byte[][] RS : sets(random)) {
+			BlockEngine reference = new BlockEngine(RS);
+			BitslicedEngine engine = new BitslicedEngine(RS);
+			KeySchedule key = KeySchedule.of(random.nextLong());
+			long[] roundKeyLanes = BitslicedEngine.roundKeyLanes(key);
+			// Two groups of 64, the second at an offset
+			long[] blocks = random.longs(128).toArray();
+			long[] encrypted = blocks.clone();
+			engine.encryptBlocks(encrypted, 0, roundKeyLanes);
+			engine.encryptBlocks(encrypted, 64, roundKeyLanes);
+			for(int i=0 ; i < blocks.length ; i++) {
+				assertEquals(reference.encrypt(blocks[i], key), encrypted[i], "block " + i);
+			}
+			engine.decryptBlocks(encrypted, 0, roundKeyLanes);
+			engine.decryptBlocks(encrypted, 64, roundKeyLanes);
+			for(int i=0 ; i < blocks.length ; i++) {
+				assertEquals(blocks[i], encrypted[i], "block " + i);
+			}
+		}
+	}
+
+	@Test
+	void matchesBlockEngineWithAKeyPerLane() {
+		SplittableRandom random = new SplittableRandom(2);
+		for(byte[][] RS : sets(random)) {
+			BlockEngine reference = new BlockEngine(RS);
+			BitslicedEngine engine = new BitslicedEngine(RS);
+			long[] keys = random.longs(64).toArray();
+			long[] keyLanes = keys.clone();
+			BitslicedEngine.transpose(keyLanes, 0);
+			long[] roundKeyLanes = new long[16 * 48];
+			BitslicedEngine.roundKeyLanes(keyLanes, roundKeyLanes);
+			long[] blocks = random.longs(64).toArray();
+			long[] encrypted = blocks.clone();
+			engine.encryptBlocks(encrypted, 0, roundKeyLanes);
+			for(int i=0 ; i < 64 ; i++) {
+				assertEquals(reference.encrypt(blocks[i], KeySchedule.of(keys[i])), encrypted[i], "block " + i);
+			}
+		}
+	}
+
+	@Test
+	void transposeIsItsOwnInverse() {
+		long[] a = new SplittableRandom(3).longs(64).toArray();
+		long[] b = a.clone();
+		BitslicedEngine.transpose(b, 0);
+		for(int i=0 ; i < 64 ; i++) {
+			for(int j=0 ; j < 64 ; j++) {
+				// Bit j of block i (0 the most significant) is bit i of lane j
+				assertEquals((a[i] >>> (63 - j)) & 1, (b[j] >>> (63 - i)) & 1);
+			}
+		}
+		BitslicedEngine.transpose(b, 0);
+		assertArrayEquals(a, b);
+	}
+}
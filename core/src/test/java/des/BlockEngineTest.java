@@ -0,0 +1,51 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BlockEngineTest {
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+
+	// The worked example of the DES standard as it is usually taught
+	@Test
+	void encryptsTheTextbookExample() {
+		KeySchedule key = KeySchedule.of(0x133457799BBCDFF1L);
+		assertEquals(0x85E813540F0AB405L, ENGINE.encrypt(0x0123456789ABCDEFL, key));
+		assertEquals(0x0123456789ABCDEFL, ENGINE.decrypt(0x85E813540F0AB405L, key));
+	}
+
+	@Test
+	void matchesJdk() {
+		SplittableRandom random = new SplittableRandom(1);
+		for(int i=0 ; i < 1000 ; i++) {
+			long key = random.nextLong();
+			long block = random.nextLong();
+			long[] keys = {key};
+			assertEquals(Jdk.crypt("DES", false, keys, block), ENGINE.encrypt(block, KeySchedule.of(key)));
+			assertEquals(Jdk.crypt("DES", true, keys, block), ENGINE.decrypt(block, KeySchedule.of(key)));
+		}
+	}
+
+	@Test
+	void decryptsWhatItEncryptsWithRandomSboxes() {
+		SplittableRandom random = new SplittableRandom(2);
+		for(int set=0 ; set < 10 ; set++) {
+			BlockEngine engine = new BlockEngine(BatchCli.sboxes("random", random.nextLong()));
+			for(int i=0 ; i < 100 ; i++) {
+				KeySchedule key = KeySchedule.of(random.nextLong());
+				long block = random.nextLong();
+				assertEquals(block, engine.decrypt(engine.encrypt(block, key), key));
+			}
+		}
+	}
+
+	@Test
+	void rejectsMalformedSboxSets() {
+		assertThrows(IllegalArgumentException.class, () -> new BlockEngine(new byte[7][64]));
+		assertThrows(IllegalArgumentException.class, () -> new BlockEngine(new byte[8][63]));
+	}
+}
@@ -0,0 +1,123 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class CipherCacheTest {
+	private static final SboxSet STANDARD = SboxSet.of(DES.S);
+
+	@Test
+	void returnsTheCachedCipherOnAHit() {
+		CipherCache cache = new CipherCache(16, 4, new SboxCache(2));
+		CipherCache.Cipher first = cache.get(0x0E329232EA6D0D73L, STANDARD);
+		assertEquals(0, cache.hits());
+		assertEquals(1, cache.misses());
+		assertSame(first, cache.get(0x0E329232EA6D0D73L, STANDARD));
+		assertSame(first, cache.get(0x0E329232EA6D0D73L, DES.S));
+		assertEquals(2, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(1, cache.size());
+		KeySchedule key = KeySchedule.of(0x0E329232EA6D0D73L);
+		assertEquals(new BlockEngine(DES.S).encrypt(0x0123456789ABCDEFL, key), first.encrypt(0x0123456789ABCDEFL));
+
+		// The same key with another S-box set is another pair
+		CipherCache.Cipher other = cache.get(0x0E329232EA6D0D73L, SboxSet.of(BatchCli.sboxes("random", 1)));
+		assertNotSame(first, other);
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	void staysWithinItsCapacityUnderChurn() {
+		// 10 does not split evenly between 4 stripes
+		CipherCache cache = new CipherCache(10, 4, new SboxCache(1));
+		SplittableRandom random = new SplittableRandom(1);
+		for(int i=0 ; i < 5000 ; i++) {
+			// Half of the lookups go to a small set of keys, so there are hits too
+			long key = random.nextBoolean() ? random.nextInt(8) : random.nextLong();
+			cache.get(key, STANDARD);
+			assertTrue(cache.size() <= 10, cache.toString());
+			assertEquals(cache.misses() - cache.size(), cache.evictions(), cache.toString());
+		}
+		assertEquals(5000, cache.hits() + cache.misses());
+		assertTrue(cache.hits() > 0, cache.toString());
+		// With that many keys every stripe is full
+		assertEquals(10, cache.size());
+	}
+
+	@Test
+	void dropsTheLeastRecentlyUsedPair() {
+		// One stripe of two
+		CipherCache cache = new CipherCache(2, 1, new SboxCache(1));
+		CipherCache.Cipher one = cache.get(1, STANDARD);
+		cache.get(2, STANDARD);
+		assertSame(one, cache.get(1, STANDARD));
+		cache.get(3, STANDARD);
+		assertEquals(1, cache.evictions());
+		// 2 was the eldest, 1 is still there
+		assertSame(one, cache.get(1, STANDARD));
+		long misses = cache.misses();
+		cache.get(2, STANDARD);
+		assertEquals(misses + 1, cache.misses());
+	}
+
+	@Test
+	void roundsTheStripesToAPowerOfTwo() {
+		SboxCache engines = new SboxCache(1);
+		assertTrue(new CipherCache(64, 3, engines).toString().contains("stripes=4"));
+		assertTrue(new CipherCache(64, 4, engines).toString().contains("stripes=4"));
+		assertTrue(new CipherCache(64, 1, engines).toString().contains("stripes=1"));
+		// Rounded down when 8 stripes would leave one without room
+		assertTrue(new CipherCache(5, 5, engines).toString().contains("stripes=4"));
+		assertTrue(new CipherCache(3, 3, engines).toString().contains("stripes=2"));
+		assertThrows(IllegalArgumentException.class, () -> new CipherCache(4, 5, engines));
+		assertThrows(IllegalArgumentException.class, () -> new CipherCache(0, 1, engines));
+		assertThrows(IllegalArgumentException.class, () -> new CipherCache(4, 0, engines));
+	}
+
+	@Test
+	void handsOutOneCipherPerPairUnderContention() throws InterruptedException, ExecutionException {
+		int threads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for(int round=0 ; round < 50 ; round++) {
+				CipherCache cache = new CipherCache(64, 4, new SboxCache(1));
+				CountDownLatch start = new CountDownLatch(1);
+				long key = round;
+				List<Future<CipherCache.Cipher>> results = new ArrayList<>();
+				for(int t=0 ; t < threads ; t++) {
+					Callable<CipherCache.Cipher> task = () -> {
+						start.await();
+						return cache.get(key, STANDARD);
+					};
+					results.add(pool.submit(task));
+				}
+				start.countDown();
+				CipherCache.Cipher first = results.get(0).get();
+				for(Future<CipherCache.Cipher> result : results) {
+					assertSame(first, result.get());
+				}
+				assertSame(first, cache.get(key, STANDARD));
+				assertEquals(1, cache.size());
+				assertEquals(0, cache.evictions());
+				assertEquals(threads + 1, cache.hits() + cache.misses());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
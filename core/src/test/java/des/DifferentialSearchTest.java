@@ -0,0 +1,89 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class DifferentialSearchTest {
+	// The best weights of DES for 2 to 5 rounds, as Matsui gives them
+	private static final double[] KNOWN = { 0, 0, 2.0, 4.0, 9.6077, 13.2154 };
+
+	// Recomputes the weight of every round from the DDTs and checks that the
+	// rounds chain up as they do in a Fiestel cipher.
+	private static void assertConsistent(byte[][] RS, DifferentialSearch.Characteristic characteristic) {
+		int[][] ddts = new int[8][];
+		for(int i=0 ; i < 8 ; i++) {
+			ddts[i] = DifferentialTable.compute(RS[i]);
+		}
+		double total = 0;
+		for(int round=0 ; round < characteristic.rounds() ; round++) {
+			int x = characteristic.inputs[round];
+			int y = characteristic.outputs[round];
+			double weight = 0;
+			for(int i=0 ; i < 8 ; i++) {
+				int image = (int) BlockEngine.P.permute(0xFL << (28 - 4*i));
+				int dy = -1;
+				for(int b=0 ; b < 16 ; b++) {
+					if((int) BlockEngine.P.permute((long) b << (28 - 4*i)) == (y & image)) {
+						dy = b;
+					}
+				}
+				int count = ddts[i][(DifferentialSearch.chunk(x, i) << 4) | dy];
+				assertTrue(count > 0, "round " + (round + 1) + ", S-box " + (i + 1) + " is impossible");
+				weight -= Math.log(count / 64.0) / Math.log(2);
+			}
+			assertEquals(weight, characteristic.weights[round], 1e-9, "round " + (round + 1));
+			total += weight;
+			if(round >= 2) {
+				assertEquals(characteristic.inputs[round - 2] ^ characteristic.outputs[round - 1], x, "round " + (round + 1));
+			}
+		}
+		assertEquals(total, characteristic.weight, 1e-9);
+	}
+
+	@Test
+	void findsTheKnownBoundsOfDes() {
+		DifferentialSearch search = new DifferentialSearch(DES.S, ForkJoinPool.commonPool());
+		for(int rounds=2 ; rounds < KNOWN.length ; rounds++) {
+			DifferentialSearch.Characteristic characteristic = search.best(rounds);
+			assertEquals(rounds, characteristic.rounds());
+			assertEquals(KNOWN[rounds], characteristic.weight, 1e-4, rounds + " rounds");
+			assertEquals(characteristic.weight, search.bound(rounds));
+			assertConsistent(DES.S, characteristic);
+		}
+		assertEquals(0, search.bound(1));
+		assertThrows(IllegalArgumentException.class, () -> search.best(1));
+	}
+
+	// The workers share the bound and the transition cache; however many of
+	// them there are, the best weights come out the same.
+	@Test
+	void findsTheSameWeightsOnOneThreadAndOnSeveral() {
+		byte[][] RS = BatchCli.sboxes("random", 11);
+		ForkJoinPool one = new ForkJoinPool(1);
+		ForkJoinPool four = new ForkJoinPool(4);
+		try {
+			DifferentialSearch sequential = new DifferentialSearch(RS, one);
+			DifferentialSearch parallel = new DifferentialSearch(RS, four);
+			DifferentialSearch standard = new DifferentialSearch(DES.S, four);
+			for(int rounds=2 ; rounds <= 5 ; rounds++) {
+				DifferentialSearch.Characteristic characteristic = parallel.best(rounds);
+				assertEquals(sequential.best(rounds).weight, characteristic.weight, 1e-9, rounds + " rounds");
+				assertConsistent(RS, characteristic);
+				assertEquals(KNOWN[rounds], standard.best(rounds).weight, 1e-4, rounds + " rounds");
+			}
+		} finally {
+			one.shutdown();
+			four.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsMalformedSboxSets() {
+		assertThrows(IllegalArgumentException.class, () -> new DifferentialSearch(new byte[7][64], ForkJoinPool.commonPool()));
+	}
+}
@@ -0,0 +1,139 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class EncryptionServerTest {
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+
+	private EncryptionServer server;
+	private Thread thread;
+
+	@BeforeEach
+	void start() throws IOException {
+		CipherCache ciphers = new CipherCache(64, 4, new SboxCache(1));
+		server = new EncryptionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				Collections.singletonList(SboxSet.of(DES.S)), 2, ciphers);
+		thread = new Thread(() -> {
+			try {
+				server.run();
+			} catch(IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		thread.start();
+	}
+
+	@AfterEach
+	void stop() throws IOException, InterruptedException {
+		server.close();
+		thread.join();
+	}
+
+	private SocketChannel connect() throws IOException {
+		return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()));
+	}
+
+	private static void send(SocketChannel channel, int id, byte op, int set, long key, long[] blocks) throws IOException {
+		ByteBuffer frame = ByteBuffer.allocate(4 + EncryptionServer.REQUEST_HEADER + 8 * blocks.length);
+		frame.putInt(EncryptionServer.REQUEST_HEADER + 8 * blocks.length).putInt(id).put(op).put((byte) set)
+				.putLong(key).putInt(blocks.length);
+		for(long block : blocks) {
+			frame.putLong(block);
+		}
+		frame.flip();
+		while(frame.hasRemaining()) {
+			channel.write(frame);
+		}
+	}
+
+	// The next reply frame, without its length, or null at the end of the stream
+	private static ByteBuffer receive(SocketChannel channel) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		if(!readFully(channel, length)) {
+			return null;
+		}
+		ByteBuffer reply = ByteBuffer.allocate(length.getInt(0));
+		assertTrue(readFully(channel, reply), "reply cut short");
+		reply.flip();
+		return reply;
+	}
+
+	private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Test
+	void answersPipelinedRequestsAfterHalfClose() throws IOException {
+		SplittableRandom random = new SplittableRandom(1);
+		int requests = 200;
+		long[] keys = new long[requests];
+		long[][] blocks = new long[requests][];
+		try(SocketChannel channel = connect()) {
+			for(int id=0 ; id < requests ; id++) {
+				keys[id] = random.nextLong();
+				blocks[id] = random.longs(1 + random.nextInt(100)).toArray();
+				send(channel, id, id % 2 == 0 ? EncryptionServer.ENCRYPT : EncryptionServer.DECRYPT, 0, keys[id], blocks[id]);
+			}
+			channel.shutdownOutput();
+			for(int id=0 ; id < requests ; id++) {
+				ByteBuffer reply = receive(channel);
+				assertEquals(id, reply.getInt());
+				assertEquals(EncryptionServer.OK, reply.get());
+				KeySchedule key = KeySchedule.of(keys[id]);
+				for(long block : blocks[id]) {
+					long expected = id % 2 == 0 ? ENGINE.encrypt(block, key) : ENGINE.decrypt(block, key);
+					assertEquals(expected, reply.getLong());
+				}
+			}
+			// Then the server closes the connection
+			assertEquals(null, receive(channel));
+		}
+	}
+
+	@Test
+	void repliesWithErrorsInOrder() throws IOException {
+		try(SocketChannel channel = connect()) {
+			send(channel, 0, EncryptionServer.ENCRYPT, 0, 1, new long[] {2});
+			send(channel, 1, EncryptionServer.ENCRYPT, 5, 1, new long[] {2});
+			send(channel, 2, (byte) 7, 0, 1, new long[] {2});
+			send(channel, 3, EncryptionServer.DECRYPT, 0, 1, new long[0]);
+			ByteBuffer reply = receive(channel);
+			assertEquals(0, reply.getInt());
+			assertEquals(EncryptionServer.OK, reply.get());
+			assertEquals(ENGINE.encrypt(2, KeySchedule.of(1)), reply.getLong());
+			for(int id=1 ; id <= 2 ; id++) {
+				reply = receive(channel);
+				assertEquals(id, reply.getInt());
+				assertEquals(EncryptionServer.ERROR, reply.get());
+				String message = StandardCharsets.UTF_8.decode(reply).toString();
+				assertTrue(message.startsWith("unknown"), message);
+			}
+			reply = receive(channel);
+			assertEquals(3, reply.getInt());
+			assertEquals(EncryptionServer.OK, reply.get());
+			assertEquals(0, reply.remaining());
+		}
+	}
+}
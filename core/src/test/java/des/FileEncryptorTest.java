@@ -0,0 +1,77 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileEncryptorTest {
+	private static final long KEY = 0x0E329232EA6D0D73L;
+	// Close to the top, so the CTR counter wraps around as the JDK's does
+	private static final long IV = 0xFFFFFFFFFFFFFFF0L;
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+
+	@TempDir
+	Path directory;
+
+	private static FileEncryptor encryptor(Mode mode) {
+		return new FileEncryptor(mode, ENGINE, KeySchedule.of(KEY), IV, ForkJoinPool.commonPool());
+	}
+
+	private void roundTrip(Mode mode, int length) throws IOException {
+		byte[] message = new byte[length];
+		new SplittableRandom(length).nextBytes(message);
+		Path plain = directory.resolve("plain");
+		Path encrypted = directory.resolve("encrypted");
+		Path decrypted = directory.resolve("decrypted");
+		Files.write(plain, message);
+
+		long written = encryptor(mode).encrypt(plain, encrypted);
+		String transformation = mode == Mode.ECB ? "DES/ECB/PKCS5Padding" : "DES/CTR/NoPadding";
+		byte[] expected = Jdk.crypt(transformation, false, new long[] {KEY}, IV, message);
+		assertEquals(expected.length, written, mode + ", " + length + " bytes");
+		assertArrayEquals(expected, Files.readAllBytes(encrypted), mode + ", " + length + " bytes");
+
+		assertEquals(length, encryptor(mode).decrypt(encrypted, decrypted));
+		assertArrayEquals(message, Files.readAllBytes(decrypted), mode + ", " + length + " bytes");
+	}
+
+	@Test
+	void roundTripsShortFiles() throws IOException {
+		for(Mode mode : new Mode[] {Mode.ECB, Mode.CTR}) {
+			for(int length : new int[] {0, 7, 8, 13}) {
+				roundTrip(mode, length);
+			}
+		}
+	}
+
+	// Long enough to be split between several tasks
+	@Test
+	void roundTripsFilesOfSeveralChunks() throws IOException {
+		roundTrip(Mode.ECB, (int) (2 * FileEncryptor.CHUNK_SIZE + 13));
+		roundTrip(Mode.CTR, (int) (2 * FileEncryptor.CHUNK_SIZE + 13));
+	}
+
+	@Test
+	void rejectsBadPadding() throws IOException {
+		Path encrypted = directory.resolve("encrypted");
+		// The last byte says 3 bytes of padding, the two before it disagree
+		Files.write(encrypted, Jdk.crypt("DES/ECB/NoPadding", false, new long[] {KEY}, 0, Jdk.bytes(0x4142434445460303L)));
+		IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> encryptor(Mode.ECB).decrypt(encrypted, directory.resolve("decrypted")));
+		assertEquals("bad padding", e.getMessage());
+	}
+
+	@Test
+	void rejectsChainedModes() {
+		assertThrows(IllegalArgumentException.class, () -> encryptor(Mode.CBC));
+	}
+}
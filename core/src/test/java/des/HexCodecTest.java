@@ -0,0 +1,120 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class HexCodecTest {
+	@Test
+	void roundTripsEveryOverload() {
+		SplittableRandom random = new SplittableRandom(1);
+		for(int i=0 ; i < 1000 ; i++) {
+			long value = random.nextLong();
+			String expected = String.format("%016X", value);
+
+			char[] chars = new char[20];
+			HexCodec.format(value, chars, 3);
+			assertEquals(expected, new String(chars, 3, 16));
+			assertEquals(value, HexCodec.parse(new String(chars), 3));
+			assertEquals(value, HexCodec.parse(expected));
+
+			byte[] bytes = new byte[20];
+			HexCodec.format(value, bytes, 2);
+			assertEquals(expected, new String(bytes, 2, 16, StandardCharsets.US_ASCII));
+			assertEquals(value, HexCodec.parse(bytes, 2));
+
+			ByteBuffer buffer = ByteBuffer.allocate(20);
+			HexCodec.format(value, buffer, 4);
+			assertEquals(0, buffer.position());
+			assertEquals(value, HexCodec.parse(buffer, 4));
+			assertEquals(0, buffer.position());
+
+			assertEquals(expected, HexCodec.append(new StringBuilder(), value).toString());
+			assertEquals(expected.toLowerCase().substring(4), HexCodec.append(new StringBuilder(), value, 12, false).toString());
+		}
+	}
+
+	// Records laid out like the "key,text\n" lines of batch mode
+	@Test
+	void roundTripsBlocksWithAStride() {
+		int stride = 34;
+		long[] blocks = new SplittableRandom(2).longs(50).toArray();
+		byte[] bytes = new byte[blocks.length * stride];
+		Arrays.fill(bytes, (byte) ',');
+		HexCodec.format(blocks, 0, blocks.length, bytes, 17, stride);
+		// The bytes in between are left alone
+		assertEquals(',', bytes[16]);
+		assertEquals(',', bytes[33]);
+		long[] parsed = new long[blocks.length + 1];
+		HexCodec.parse(bytes, 17, stride, parsed, 1, blocks.length);
+		assertArrayEquals(blocks, Arrays.copyOfRange(parsed, 1, parsed.length));
+
+		byte[] separators = new byte[bytes.length];
+		Arrays.fill(separators, (byte) ',');
+		ByteBuffer buffer = ByteBuffer.wrap(separators);
+		HexCodec.format(blocks, 0, blocks.length, buffer, 17, stride);
+		assertArrayEquals(bytes, buffer.array());
+		HexCodec.parse(buffer, 17, stride, parsed, 0, blocks.length);
+		assertArrayEquals(blocks, Arrays.copyOf(parsed, blocks.length));
+	}
+
+	@Test
+	void acceptsBothCases() {
+		String mixed = "0123456789aBcDeF";
+		assertEquals(0x0123456789ABCDEFL, HexCodec.parse(mixed));
+		assertEquals(0x0123456789ABCDEFL, HexCodec.parse(mixed.getBytes(StandardCharsets.US_ASCII), 0));
+		assertEquals(0x0123456789ABCDEFL, HexCodec.parse(ByteBuffer.wrap(mixed.getBytes(StandardCharsets.US_ASCII)), 0));
+		assertEquals(0xFFFFFFFFFFFFFFFFL, HexCodec.parse("ffffffffFFFFFFFF"));
+		assertTrue(HexCodec.isHex(mixed, 0));
+	}
+
+	@Test
+	void rejectsAnythingButDigits() {
+		// Next to the digits in ASCII, and chars above 0xFF whose low byte is one
+		for(char c : new char[] {'/', ':', '@', 'G', '`', 'g', ' ', '-', '\u0130', '\u0141', '\u0166', '\uFF46'}) {
+			String text = "0123456789ABCDE" + c;
+			assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(text), text);
+			assertFalse(HexCodec.isHex(text, 0), text);
+			if(c <= 0xFF) {
+				byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+				assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(bytes, 0), text);
+				assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(ByteBuffer.wrap(bytes), 0), text);
+			}
+		}
+		byte[] high = "0123456789ABCDE0".getBytes(StandardCharsets.US_ASCII);
+		high[7] = (byte) 0xB0;
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(high, 0));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(ByteBuffer.wrap(high), 0));
+	}
+
+	@Test
+	void rejectsTooFewDigits() {
+		String digits = "0123456789ABCDEF";
+		byte[] bytes = digits.getBytes(StandardCharsets.US_ASCII);
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(digits + "0"));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(digits.substring(1)));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(digits, 1));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(digits, -1));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(digits, 40));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(bytes, 1));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(bytes, -1));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(Arrays.copyOf(bytes, 15), 0));
+		// Only the bytes up to the limit count
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.limit(15);
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(buffer, 0));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(ByteBuffer.wrap(bytes), 1));
+		assertThrows(IllegalArgumentException.class, () -> HexCodec.parse(ByteBuffer.wrap(bytes), -1));
+		assertFalse(HexCodec.isHex(digits, 1));
+		assertFalse(HexCodec.isHex(digits, -1));
+	}
+}
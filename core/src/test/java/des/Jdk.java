@@ -0,0 +1,46 @@
+package des;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// The JDK's DES and DESede, the reference the engines and modes are checked
+// against with the standard S-boxes.
+final class Jdk {
+	private Jdk() {
+	}
+
+	static byte[] bytes(long... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(8 * values.length);
+		for(long value : values) {
+			buffer.putLong(value);
+		}
+		return buffer.array();
+	}
+
+	// Runs input through transformation (such as "DES/CBC/PKCS5Padding") in
+	// one call; keys holds one DES key, or three for DESede.
+	static byte[] crypt(String transformation, boolean isDecrypt, long[] keys, long iv, byte[] input) {
+		try {
+			String algorithm = transformation.substring(0, transformation.indexOf('/'));
+			Cipher cipher = Cipher.getInstance(transformation);
+			SecretKeySpec key = new SecretKeySpec(bytes(keys), algorithm);
+			int mode = isDecrypt ? Cipher.DECRYPT_MODE : Cipher.ENCRYPT_MODE;
+			if(transformation.contains("/ECB/")) {
+				cipher.init(mode, key);
+			} else {
+				cipher.init(mode, key, new IvParameterSpec(bytes(iv)));
+			}
+			return cipher.doFinal(input);
+		} catch(GeneralSecurityException e) {
+			throw new AssertionError(transformation, e);
+		}
+	}
+
+	static long crypt(String algorithm, boolean isDecrypt, long[] keys, long block) {
+		return ByteBuffer.wrap(crypt(algorithm + "/ECB/NoPadding", isDecrypt, keys, 0, bytes(block))).getLong();
+	}
+}
@@ -0,0 +1,30 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class KeyRecoveryTest {
+	@Test
+	void recoversTheLastRoundKeyPiecesWhateverTheWorkers() throws InterruptedException {
+		int rounds = 5;
+		KeyRecovery attack = new KeyRecovery(DES.S, rounds, new DifferentialSearch(DES.S, ForkJoinPool.commonPool()));
+		KeySchedule key = KeySchedule.of(new SplittableRandom(7).nextLong());
+		long[] candidates = attack.collect(key, 200000, 7, 2);
+		assertTrue(candidates.length > 0);
+
+		ByteBuffer one = attack.count(candidates, 1);
+		ByteBuffer three = attack.count(candidates, 3);
+		assertEquals(one, three);
+
+		// Every right pair votes for the right pieces, so none has more votes
+		int right = attack.index(key.roundKey(rounds - 1));
+		int best = KeyRecovery.top(one, 1)[0];
+		assertEquals(one.getInt(best << 2), one.getInt(right << 2));
+	}
+}
@@ -0,0 +1,68 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class LinearTableTest {
+	// Counts the agreements of every pair of masks over every input
+	private static int[] count(byte[] sbox) {
+		int[] lat = new int[LinearTable.SIZE];
+		for(int a=0 ; a < LinearTable.INPUTS ; a++) {
+			for(int b=0 ; b < LinearTable.OUTPUTS ; b++) {
+				int agreements = 0;
+				for(int x=0 ; x < LinearTable.INPUTS ; x++) {
+					int s = sbox[Sboxes.index(x)] & 0xF;
+					if((Integer.bitCount(a & x) & 1) == (Integer.bitCount(b & s) & 1)) {
+						agreements++;
+					}
+				}
+				lat[(a << 4) | b] = agreements - LinearTable.INPUTS / 2;
+			}
+		}
+		return lat;
+	}
+
+	private static void assertMatchesCounting(byte[] sbox) {
+		int[] lat = LinearTable.compute(sbox);
+		assertArrayEquals(count(sbox), lat);
+		int max = 0;
+		for(int i=0 ; i < LinearTable.SIZE ; i++) {
+			if((i & 0xF) != 0) {
+				max = Math.max(max, Math.abs(lat[i]));
+			}
+		}
+		assertEquals(max, LinearTable.maxEntry(lat));
+		assertEquals(32 - max, LinearTable.nonlinearity(lat));
+		assertEquals(max / 64.0, LinearTable.maxBias(lat));
+	}
+
+	@Test
+	void matchesCountingForTheDesSboxes() {
+		for(byte[] sbox : DES.S) {
+			assertMatchesCounting(sbox);
+		}
+	}
+
+	@Test
+	void matchesCountingForRandomSboxes() {
+		SplittableRandom random = new SplittableRandom(1);
+		byte[] sbox = new byte[64];
+		for(int i=0 ; i < 200 ; i++) {
+			Sboxes.random(random, sbox);
+			assertMatchesCounting(sbox);
+		}
+	}
+
+	// Matsui's best approximation of S5: input mask 0x10 agrees with output
+	// mask 0xF for only 12 of the 64 inputs
+	@Test
+	void findsMatsuisApproximationOfS5() {
+		int[] lat = LinearTable.compute(DES.S[4]);
+		assertEquals(12 - 32, lat[(0x10 << 4) | 0xF]);
+		assertEquals(20, LinearTable.maxEntry(lat));
+	}
+}
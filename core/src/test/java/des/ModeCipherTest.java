@@ -0,0 +1,94 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ModeCipherTest {
+	private static final long KEY = 0x133457799BBCDFF1L;
+	private static final long IV = 0x0123456789ABCDEFL;
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+	private static final int[] CHUNKS = {1, 7, 8, 9, 13, 64};
+
+	private static String transformation(Mode mode) {
+		return "DES/" + mode + (mode.isPadded() ? "/PKCS5Padding" : "/NoPadding");
+	}
+
+	private static ModeCipher cipher(Mode mode, boolean isDecrypt) {
+		return new ModeCipher(mode, ENGINE, KeySchedule.of(KEY), IV, isDecrypt);
+	}
+
+	// Feeds input to update() in pieces of chunk bytes, then calls doFinal()
+	private static byte[] run(ModeCipher cipher, byte[] input, int chunk) {
+		ByteBuffer out = ByteBuffer.allocate(input.length + 16);
+		for(int from=0 ; from < input.length ; from += chunk) {
+			cipher.update(ByteBuffer.wrap(input, from, Math.min(chunk, input.length - from)), out);
+		}
+		cipher.doFinal(ByteBuffer.allocate(0), out);
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	@Test
+	void matchesJdkForEveryModeLengthAndChunk() {
+		SplittableRandom random = new SplittableRandom(1);
+		for(Mode mode : Mode.values()) {
+			for(int length=0 ; length <= 40 ; length++) {
+				byte[] message = new byte[length];
+				random.nextBytes(message);
+				byte[] expected = Jdk.crypt(transformation(mode), false, new long[] {KEY}, IV, message);
+				for(int chunk : CHUNKS) {
+					String what = mode + ", " + length + " bytes in chunks of " + chunk;
+					assertArrayEquals(expected, run(cipher(mode, false), message, chunk), what);
+					assertArrayEquals(message, run(cipher(mode, true), expected, chunk), what);
+				}
+			}
+		}
+	}
+
+	// Padded decryption used to keep up to 15 bytes in its 8 byte buffer
+	@Test
+	void decryptsPaddedModesInOddChunks() {
+		byte[] message = new byte[17];
+		new SplittableRandom(2).nextBytes(message);
+		for(Mode mode : new Mode[] {Mode.ECB, Mode.CBC}) {
+			byte[] ciphertext = Jdk.crypt(transformation(mode), false, new long[] {KEY}, IV, message);
+			assertEquals(24, ciphertext.length);
+			assertArrayEquals(message, run(cipher(mode, true), ciphertext, 13), mode.toString());
+		}
+	}
+
+	@Test
+	void cipherCanBeReusedAfterDoFinal() {
+		byte[] message = "reused for a second message".getBytes();
+		ModeCipher cipher = cipher(Mode.CBC, false);
+		byte[] first = run(cipher, message, 9);
+		assertArrayEquals(first, run(cipher, message, 9));
+	}
+
+	@Test
+	void rejectsBadPadding() {
+		byte[] ciphertext = Jdk.crypt("DES/ECB/NoPadding", false, new long[] {KEY}, 0, Jdk.bytes(0x4142434445460303L));
+		assertThrows(IllegalStateException.class, () -> run(cipher(Mode.ECB, true), ciphertext, 8));
+		assertThrows(IllegalStateException.class, () -> run(cipher(Mode.ECB, true), new byte[12], 12));
+	}
+
+	@Test
+	void transfersStreams() throws IOException {
+		byte[] message = new byte[3 * ModeCipher.BATCH_SIZE + 5];
+		new SplittableRandom(3).nextBytes(message);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long written = cipher(Mode.CBC, false).transfer(new ByteArrayInputStream(message), out);
+		byte[] expected = Jdk.crypt("DES/CBC/PKCS5Padding", false, new long[] {KEY}, IV, message);
+		assertEquals(expected.length, written);
+		assertArrayEquals(expected, out.toByteArray());
+	}
+}
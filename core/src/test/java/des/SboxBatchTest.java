@@ -0,0 +1,77 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SboxBatchTest {
+	// Every lane against the tables built one S-box at a time
+	private static void assertMatchesTables(SboxBatch batch, byte[][] sboxes, int from, int count) {
+		batch.score(sboxes, from, count, true);
+		for(int k=0 ; k < count ; k++) {
+			byte[] sbox = sboxes[from + k];
+			int[] ddt = DifferentialTable.compute(sbox);
+			String message = "S-box " + (from + k);
+			assertEquals(DifferentialTable.l(ddt), batch.L[k], message);
+			assertEquals(DifferentialTable.r(ddt), batch.R[k], message);
+			assertEquals(DifferentialTable.branchNumber(ddt), batch.branchNumber[k], message);
+			assertEquals(DifferentialTable.e(batch.L[k], batch.R[k]), batch.e(k), message);
+			assertEquals(BoomerangTable.uniformity(BoomerangTable.compute(sbox)), batch.boomerang[k], message);
+		}
+	}
+
+	private static byte[][] random(SplittableRandom random, int n) {
+		byte[][] sboxes = new byte[n][64];
+		for(byte[] sbox : sboxes) {
+			Sboxes.random(random, sbox);
+		}
+		return sboxes;
+	}
+
+	@Test
+	void matchesTheTablesForTheDesSboxes() {
+		assertMatchesTables(new SboxBatch(), DES.S, 0, DES.S.length);
+	}
+
+	@Test
+	void matchesTheTablesForRandomSboxes() {
+		SboxBatch batch = new SboxBatch();
+		byte[][] sboxes = random(new SplittableRandom(1), 20 * SboxBatch.LANES);
+		for(int from=0 ; from < sboxes.length ; from += SboxBatch.LANES) {
+			assertMatchesTables(batch, sboxes, from, SboxBatch.LANES);
+		}
+	}
+
+	// Partial batches, after full ones have left results in the other lanes
+	@Test
+	void matchesTheTablesForPartialBatches() {
+		SboxBatch batch = new SboxBatch();
+		byte[][] sboxes = random(new SplittableRandom(2), 2 * SboxBatch.LANES);
+		for(int count=1 ; count < SboxBatch.LANES ; count++) {
+			assertMatchesTables(batch, sboxes, 0, SboxBatch.LANES);
+			assertMatchesTables(batch, sboxes, SboxBatch.LANES + 1, count);
+		}
+	}
+
+	// Permutations on 4 of the 6 input bits have a high boomerang uniformity
+	@Test
+	void matchesTheTablesForDegenerateSboxes() {
+		byte[][] sboxes = new byte[3][64];
+		for(int x=0 ; x < 64 ; x++) {
+			sboxes[1][Sboxes.index(x)] = (byte) (x & 0xF);
+			sboxes[2][Sboxes.index(x)] = (byte) ((x >> 1) & 0xF);
+		}
+		assertMatchesTables(new SboxBatch(), sboxes, 0, 3);
+	}
+
+	@Test
+	void rejectsBadBatches() {
+		SboxBatch batch = new SboxBatch();
+		assertThrows(IllegalArgumentException.class, () -> batch.score(DES.S, 0, 0, false));
+		assertThrows(IllegalArgumentException.class, () -> batch.score(new byte[17][64], 0, 17, false));
+		assertThrows(IllegalArgumentException.class, () -> batch.score(new byte[][] {new byte[63]}, 0, 1, false));
+	}
+}
@@ -0,0 +1,207 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SboxCatalogTest {
+	@TempDir
+	Path directory;
+
+	private static void appendRandom(SboxCatalog catalog, SplittableRandom random, int count) throws IOException {
+		byte[] sbox = new byte[64];
+		for(int i=0 ; i < count ; i++) {
+			Sboxes.random(random, sbox);
+			catalog.append(random.nextInt(8), sbox, catalog.size());
+		}
+	}
+
+	// The records a query should visit, found by reading every record
+	private static List<Long> filter(SboxCatalog catalog, int position, int maxL, int maxR) throws IOException {
+		// Appends are only readable once written out
+		catalog.flush();
+		List<Long> expected = new ArrayList<>();
+		for(long n=0 ; n < catalog.size() ; n++) {
+			if((position < 0 || catalog.position(n) == position) && catalog.l(n) <= maxL && catalog.r(n) <= maxR) {
+				expected.add(n);
+			}
+		}
+		return expected;
+	}
+
+	private static void assertQueriesMatchFilter(SboxCatalog catalog) throws IOException {
+		int[][] queries = { {-1, 64, 63}, {-1, 12, 63}, {3, 64, 63}, {5, 14, 1}, {0, 10, 0}, {7, -1, 63} };
+		for(int[] query : queries) {
+			List<Long> expected = filter(catalog, query[0], query[1], query[2]);
+			List<Long> selected = new ArrayList<>();
+			catalog.select(query[0], query[1], query[2], n -> selected.add(n));
+			selected.sort(null);
+			String message = "position " + query[0] + ", L <= " + query[1] + ", R <= " + query[2];
+			assertEquals(expected, selected, message);
+			assertEquals(expected.size(), catalog.count(query[0], query[1], query[2]), message);
+		}
+		for(int p=0 ; p < 8 ; p++) {
+			double best = Double.NEGATIVE_INFINITY;
+			for(long n : filter(catalog, p, 64, 63)) {
+				best = Math.max(best, catalog.e(n));
+			}
+			long found = catalog.best(p);
+			assertEquals(best, found < 0 ? Double.NEGATIVE_INFINITY : catalog.e(found), "position " + p);
+		}
+	}
+
+	@Test
+	void keepsWhatItIsGiven() throws IOException {
+		try(SboxCatalog catalog = new SboxCatalog(directory.resolve("catalog"))) {
+			SplittableRandom random = new SplittableRandom(1);
+			byte[] sbox = new byte[64];
+			for(int i=0 ; i < 100 ; i++) {
+				Sboxes.random(random, sbox);
+				long sequence = random.nextLong();
+				long n = catalog.append(i & 7, sbox, sequence);
+				assertEquals(i, n);
+				catalog.flush();
+				int[] ddt = DifferentialTable.compute(sbox);
+				int[] lat = LinearTable.compute(sbox);
+				assertArrayEquals(sbox, catalog.sbox(n, new byte[64]));
+				assertEquals(i & 7, catalog.position(n));
+				assertEquals(DifferentialTable.l(ddt), catalog.l(n));
+				assertEquals(DifferentialTable.r(ddt), catalog.r(n));
+				assertEquals(DifferentialTable.e(catalog.l(n), catalog.r(n)), catalog.e(n));
+				assertEquals(LinearTable.nonlinearity(lat), catalog.nonlinearity(n));
+				assertEquals(LinearTable.maxBias(lat), catalog.maxBias(n));
+				assertEquals(DifferentialTable.branchNumber(ddt), catalog.branchNumber(n));
+				assertEquals(BoomerangTable.uniformity(BoomerangTable.compute(sbox)), catalog.boomerang(n));
+				assertEquals(sequence, catalog.sequence(n));
+			}
+		}
+	}
+
+	@Test
+	void appendsEncodedBuffers() throws IOException {
+		try(SboxCatalog catalog = new SboxCatalog(directory.resolve("catalog"))) {
+			ByteBuffer records = ByteBuffer.allocate(3 * SboxCatalog.RECORD_SIZE);
+			for(int i=0 ; i < 3 ; i++) {
+				SboxCatalog.encode(records, i, DES.S[i], 16, 5 + i, 14, 18, 2, 16, 100 + i);
+			}
+			catalog.append(records);
+			assertEquals(3, catalog.size());
+			for(int i=0 ; i < 3 ; i++) {
+				assertArrayEquals(DES.S[i], catalog.sbox(i, new byte[64]));
+				assertEquals(5 + i, catalog.r(i));
+				assertEquals(100 + i, catalog.sequence(i));
+			}
+			assertThrows(IllegalArgumentException.class, () -> SboxCatalog.encode(records, 8, DES.S[0], 16, 5, 14, 18, 2, 16, 0));
+			assertThrows(IllegalArgumentException.class, () -> catalog.l(3));
+		}
+	}
+
+	@Test
+	void answersTheSameBeforeAndAfterIndexing() throws IOException {
+		SplittableRandom random = new SplittableRandom(2);
+		try(SboxCatalog catalog = new SboxCatalog(directory.resolve("catalog"))) {
+			assertQueriesMatchFilter(catalog);
+			appendRandom(catalog, random, 3000);
+			assertEquals(0, catalog.indexed());
+			assertQueriesMatchFilter(catalog);
+			catalog.index();
+			assertEquals(3000, catalog.indexed());
+			assertQueriesMatchFilter(catalog);
+			// Part indexed, part in the tail, queried between appends
+			appendRandom(catalog, random, 1500);
+			assertQueriesMatchFilter(catalog);
+			appendRandom(catalog, random, 10);
+			assertQueriesMatchFilter(catalog);
+			assertEquals(3000, catalog.indexed());
+		}
+	}
+
+	@Test
+	void visitsTheBestFirst() throws IOException {
+		try(SboxCatalog catalog = new SboxCatalog(directory.resolve("catalog"))) {
+			appendRandom(catalog, new SplittableRandom(3), 2000);
+			catalog.index();
+			appendRandom(catalog, new SplittableRandom(4), 500);
+			List<Long> visited = new ArrayList<>();
+			catalog.best(2, 50, n -> visited.add(n));
+			assertEquals(50, visited.size());
+			for(int i=0 ; i < visited.size() ; i++) {
+				assertEquals(2, catalog.position(visited.get(i)));
+				if(i > 0) {
+					assertTrue(catalog.e(visited.get(i - 1)) >= catalog.e(visited.get(i)));
+				}
+			}
+			assertEquals(visited.get(0).longValue(), catalog.best(2));
+		}
+	}
+
+	@Test
+	void reopensAnExistingCatalog() throws IOException {
+		Path path = directory.resolve("catalog");
+		SplittableRandom random = new SplittableRandom(5);
+		byte[] first;
+		try(SboxCatalog catalog = new SboxCatalog(path)) {
+			appendRandom(catalog, random, 1000);
+			catalog.index();
+			// Still in the append buffer when the catalog is closed
+			appendRandom(catalog, random, 10);
+			first = catalog.sbox(0, new byte[64]);
+		}
+		try(SboxCatalog catalog = new SboxCatalog(path)) {
+			assertEquals(1010, catalog.size());
+			assertEquals(1000, catalog.indexed());
+			assertArrayEquals(first, catalog.sbox(0, new byte[64]));
+			assertQueriesMatchFilter(catalog);
+			appendRandom(catalog, random, 10);
+			catalog.flush();
+			assertEquals(1010, catalog.sequence(1010));
+		}
+		assertThrows(IllegalArgumentException.class, () -> new SboxCatalog(Files.write(directory.resolve("other"), new byte[100])));
+	}
+
+	@Test
+	void ignoresIndexesOfOtherFiles() throws IOException {
+		Path big = directory.resolve("big");
+		Path small = directory.resolve("small");
+		try(SboxCatalog catalog = new SboxCatalog(big)) {
+			appendRandom(catalog, new SplittableRandom(6), 2000);
+			catalog.index();
+		}
+		try(SboxCatalog catalog = new SboxCatalog(small)) {
+			appendRandom(catalog, new SplittableRandom(7), 500);
+		}
+		// An index of more records than the catalog holds
+		Files.copy(Paths.get(big + ".idx"), Paths.get(small + ".idx"));
+		try(SboxCatalog catalog = new SboxCatalog(small)) {
+			assertEquals(0, catalog.indexed());
+			assertQueriesMatchFilter(catalog);
+		}
+		// Not an index at all
+		Files.write(Paths.get(small + ".idx"), new byte[1 << 16]);
+		try(SboxCatalog catalog = new SboxCatalog(small)) {
+			assertEquals(0, catalog.indexed());
+			assertQueriesMatchFilter(catalog);
+		}
+		// Cut short
+		byte[] index = Files.readAllBytes(Paths.get(big + ".idx"));
+		Files.write(Paths.get(big + ".idx"), Arrays.copyOf(index, index.length - 4));
+		try(SboxCatalog catalog = new SboxCatalog(big)) {
+			assertEquals(0, catalog.indexed());
+			assertQueriesMatchFilter(catalog);
+		}
+	}
+}
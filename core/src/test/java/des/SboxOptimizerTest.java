@@ -0,0 +1,59 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SboxOptimizerTest {
+	// The incremental DDT, L and R against the ones computed from scratch
+	private static void assertConsistent(SboxOptimizer optimizer, String message) {
+		byte[] sbox = new byte[64];
+		optimizer.sbox(sbox);
+		int[] ddt = DifferentialTable.compute(sbox);
+		assertArrayEquals(ddt, optimizer.ddt(), message);
+		assertEquals(DifferentialTable.l(ddt), optimizer.l(), message);
+		assertEquals(DifferentialTable.r(ddt), optimizer.r(), message);
+		assertEquals(DifferentialTable.e(optimizer.l(), optimizer.r()), optimizer.e(), message);
+	}
+
+	@Test
+	void keepsTheTablesUpToDateAfterRandomSets() {
+		SplittableRandom random = new SplittableRandom(1);
+		SboxOptimizer optimizer = new SboxOptimizer(new SplittableRandom(2));
+		assertConsistent(optimizer, "start");
+		for(int i=0 ; i < 2000 ; i++) {
+			optimizer.set(random.nextInt(64), random.nextInt(16));
+			assertConsistent(optimizer, "set " + i);
+		}
+	}
+
+	@Test
+	void keepsTheTablesUpToDateAfterLoading() {
+		SplittableRandom random = new SplittableRandom(3);
+		SboxOptimizer optimizer = new SboxOptimizer(new SplittableRandom(4));
+		for(byte[] sbox : DES.S) {
+			optimizer.load(sbox);
+			byte[] copy = new byte[64];
+			optimizer.sbox(copy);
+			assertArrayEquals(sbox, copy);
+			assertConsistent(optimizer, "load");
+			for(int i=0 ; i < 100 ; i++) {
+				optimizer.set(random.nextInt(64), random.nextInt(16));
+			}
+			assertConsistent(optimizer, "sets after load");
+		}
+	}
+
+	@Test
+	void optimizingNeverLeavesAWorseBox() {
+		SboxOptimizer optimizer = new SboxOptimizer(new SplittableRandom(5));
+		double start = optimizer.e();
+		optimizer.optimize(2000, 0.01);
+		assertConsistent(optimizer, "optimize");
+		assertTrue(optimizer.e() >= start, optimizer.e() + " < " + start);
+	}
+}
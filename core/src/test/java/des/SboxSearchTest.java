@@ -0,0 +1,64 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SboxSearchTest {
+	@TempDir
+	Path directory;
+
+	// Every metric of every leader against the tables built from its S-box
+	private static void assertScored(List<List<SboxSearch.Candidate>> best, int topK) {
+		assertEquals(8, best.size());
+		for(int position=0 ; position < 8 ; position++) {
+			List<SboxSearch.Candidate> leaders = best.get(position);
+			assertEquals(topK, leaders.size());
+			for(int i=0 ; i < leaders.size() ; i++) {
+				SboxSearch.Candidate candidate = leaders.get(i);
+				int[] ddt = DifferentialTable.compute(candidate.sbox);
+				assertEquals(position, candidate.position);
+				assertEquals(DifferentialTable.l(ddt), candidate.L);
+				assertEquals(DifferentialTable.r(ddt), candidate.R);
+				assertEquals(DifferentialTable.e(candidate.L, candidate.R), candidate.e);
+				assertEquals(DifferentialTable.branchNumber(ddt), candidate.branchNumber);
+				assertEquals(BoomerangTable.uniformity(BoomerangTable.compute(candidate.sbox)), candidate.boomerang);
+				if(i > 0) {
+					assertTrue(leaders.get(i - 1).compareTo(candidate) > 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	void scoresItsLeadersWithAndWithoutACatalog() throws InterruptedException, IOException {
+		List<List<SboxSearch.Candidate>> best = new SboxSearch(1, 20000, 4, 3).run();
+		assertScored(best, 4);
+
+		// The catalog gets every candidate; the leaderboard stays the same
+		try(SboxCatalog catalog = new SboxCatalog(directory.resolve("catalog"))) {
+			List<List<SboxSearch.Candidate>> cataloged = new SboxSearch(1, 20000, 4, 3, catalog).run();
+			assertScored(cataloged, 4);
+			for(int position=0 ; position < 8 ; position++) {
+				for(int i=0 ; i < 4 ; i++) {
+					SboxSearch.Candidate candidate = best.get(position).get(i);
+					assertArrayEquals(candidate.sbox, cataloged.get(position).get(i).sbox);
+					assertEquals(candidate.sequence, cataloged.get(position).get(i).sequence);
+				}
+			}
+			catalog.flush();
+			assertEquals(20000, catalog.size());
+			for(long n=0 ; n < catalog.size() ; n += 997) {
+				byte[] sbox = catalog.sbox(n, new byte[64]);
+				assertEquals(BoomerangTable.uniformity(BoomerangTable.compute(sbox)), catalog.boomerang(n));
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package des;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class TripleDESTest {
+	private static final BlockEngine ENGINE = new BlockEngine(DES.S);
+
+	@Test
+	void matchesJdkWithThreeKeys() {
+		SplittableRandom random = new SplittableRandom(1);
+		for(int i=0 ; i < 500 ; i++) {
+			long[] keys = random.longs(3).toArray();
+			long block = random.nextLong();
+			TripleDES cipher = TripleDES.of(ENGINE, keys[0], keys[1], keys[2]);
+			assertEquals(Jdk.crypt("DESede", false, keys, block), cipher.encrypt(block));
+			assertEquals(Jdk.crypt("DESede", true, keys, block), cipher.decrypt(block));
+		}
+	}
+
+	@Test
+	void matchesJdkWithTwoKeys() {
+		SplittableRandom random = new SplittableRandom(2);
+		for(int i=0 ; i < 500 ; i++) {
+			long k1 = random.nextLong();
+			long k2 = random.nextLong();
+			long block = random.nextLong();
+			long[] keys = {k1, k2, k1};
+			TripleDES cipher = TripleDES.of(ENGINE, k1, k2);
+			assertEquals(Jdk.crypt("DESede", false, keys, block), cipher.encrypt(block));
+			assertEquals(Jdk.crypt("DESede", true, keys, block), cipher.decrypt(block));
+		}
+	}
+
+	// With the three keys equal the stages collapse to single DES
+	@Test
+	void fallsBackToDesWithOneKey() {
+		SplittableRandom random = new SplittableRandom(3);
+		for(int i=0 ; i < 100 ; i++) {
+			long key = random.nextLong();
+			long block = random.nextLong();
+			TripleDES cipher = TripleDES.of(ENGINE, key, key, key);
+			assertEquals(ENGINE.encrypt(block, KeySchedule.of(key)), cipher.encrypt(block));
+			assertEquals(ENGINE.decrypt(block, KeySchedule.of(key)), cipher.decrypt(block));
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package des;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Avalanche analysis of the whole 16 round cipher with a given S-box set:
+// for random plaintexts and keys, flips every plaintext bit and every key
+// bit in turn and counts how often every ciphertext bit changes. The counts
+// give the 64x64 dependence matrices (does output bit j ever depend on input
+// bit i) and the strict avalanche criterion matrices (output bit j should
+// change with probability 1/2 whenever input bit i is flipped), for the
+// plaintext and for the key.
+//
+// A sample takes two passes of the bitsliced engine. In the first, lane t
+// holds the plaintext with bit t flipped, all under the same key; in the
+// second, every lane holds the same plaintext and lane t the key with bit t
+// flipped. The parity bits of the key are dropped by PC1, so the lanes that
+// flip them (7, 15, ..., 63) give the unchanged ciphertext to compare the
+// others with. The changed output bits come out as one long per ciphertext
+// bit with one bit per flipped input bit, and are added up in bitsliced
+// counters (COUNTER_BITS planes of longs, a ripple carry add per sample)
+// that are moved into plain long counts every 2^COUNTER_BITS - 1 samples.
+//
+// Workers draw from their own SplittableRandom, split in a fixed order from
+// the seed, and the counts of all workers are summed at the end, so a run
+// can be repeated.
+final class AvalancheAnalysis {
+	static final int COUNTER_BITS = 16;
+
+	private final BitslicedEngine engine;
+	private final LongAdder sampled = new LongAdder();
+
+	AvalancheAnalysis(byte[][] RS) {
+		this.engine = new BitslicedEngine(RS);
+	}
+
+	// Counts of one analysis. plaintext[64*i + j] and key[64*i + j] are the
+	// number of samples in which flipping input bit i (0 the most
+	// significant) changed output bit j.
+	static final class Result {
+		final long samples;
+		final long[] plaintext;
+		final long[] key;
+
+		Result(long samples, long[] plaintext, long[] key) {
+			this.samples = samples;
+			this.plaintext = plaintext;
+			this.key = key;
+		}
+
+		static boolean isParity(int keyBit) {
+			return (keyBit & 7) == 7;
+		}
+
+		// Probability that output bit j changes when input bit i is flipped
+		public double sac(boolean isKey, int i, int j) {
+			return (isKey ? key : plaintext)[64*i + j] / (double) samples;
+		}
+
+		// Fraction of the (input bit, output bit) pairs where the output bit
+		// changed at least once; 1 for a complete cipher. The parity bits of
+		// the key are left out.
+		public double dependence(boolean isKey) {
+			long[] counts = isKey ? key : plaintext;
+			int pairs = 0;
+			int dependent = 0;
+			for(int i=0 ; i < 64 ; i++) {
+				if(isKey && isParity(i)) {
+					continue;
+				}
+				for(int j=0 ; j < 64 ; j++) {
+					pairs++;
+					if(counts[64*i + j] != 0) {
+						dependent++;
+					}
+				}
+			}
+			return dependent / (double) pairs;
+		}
+
+		// Average number of output bits that change when one input bit is
+		// flipped; 32 for an ideal cipher.
+		public double avalanche(boolean isKey) {
+			long[] counts = isKey ? key : plaintext;
+			long changed = 0;
+			for(int i=0 ; i < 64 ; i++) {
+				if(isKey && isParity(i)) {
+					continue;
+				}
+				for(int j=0 ; j < 64 ; j++) {
+					changed += counts[64*i + j];
+				}
+			}
+			return changed / (double) samples / (isKey ? 56 : 64);
+		}
+
+		// Largest and average distance of the SAC probabilities from 1/2
+		public double maxDeviation(boolean isKey) {
+			double max = 0;
+			for(int i=0 ; i < 64 ; i++) {
+				if(isKey && isParity(i)) {
+					continue;
+				}
+				for(int j=0 ; j < 64 ; j++) {
+					max = Math.max(max, Math.abs(sac(isKey, i, j) - 0.5));
+				}
+			}
+			return max;
+		}
+
+		public double meanDeviation(boolean isKey) {
+			double sum = 0;
+			for(int i=0 ; i < 64 ; i++) {
+				if(isKey && isParity(i)) {
+					continue;
+				}
+				for(int j=0 ; j < 64 ; j++) {
+					sum += Math.abs(sac(isKey, i, j) - 0.5);
+				}
+			}
+			return sum / (64 * (isKey ? 56 : 64));
+		}
+	}
+
+	// Number of samples taken so far, readable while the analysis runs
+	public long sampled() {
+		return sampled.sum();
+	}
+
+	// Takes the given number of samples on the given number of threads.
+	public Result run(long samples, long seed, int workers) throws InterruptedException {
+		if(samples < 1 || workers < 1) {
+			throw new IllegalArgumentException("samples=" + samples + ", workers=" + workers);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			SplittableRandom master = new SplittableRandom(seed);
+			List<Future<long[][]>> results = new ArrayList<>();
+			for(int w=0 ; w < workers ; w++) {
+				long share = samples / workers + (w < samples % workers ? 1 : 0);
+				SplittableRandom random = master.split();
+				results.add(pool.submit(() -> sample(random, share)));
+			}
+			long[] plaintext = new long[64 * 64];
+			long[] key = new long[64 * 64];
+			for(Future<long[][]> result : results) {
+				long[][] local = result.get();
+				for(int k=0 ; k < 64 * 64 ; k++) {
+					plaintext[k] += local[0][k];
+					key[k] += local[1][k];
+				}
+			}
+			return new Result(samples, plaintext, key);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("avalanche worker failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Returns the plaintext and the key counts of share samples.
+	private long[][] sample(SplittableRandom random, long share) {
+		long[] plaintextCounts = new long[64 * 64];
+		long[] keyCounts = new long[64 * 64];
+		long[] plaintextPlanes = new long[64 * COUNTER_BITS];
+		long[] keyPlanes = new long[64 * COUNTER_BITS];
+		long[] keyLanes = new long[64];
+		long[] roundKeyLanes = new long[16 * 48];
+		long[] lanes = new long[64];
+		long[] plaintextChanges = new long[64];
+		int pending = 0;
+		for(long n=0 ; n < share ; n++) {
+			long plaintext = random.nextLong();
+			long key = random.nextLong();
+
+			// Lane t: the plaintext with bit t flipped, the same key everywhere
+			for(int i=0 ; i < 64 ; i++) {
+				keyLanes[i] = -((key >>> (63 - i)) & 1);
+				lanes[i] = -((plaintext >>> (63 - i)) & 1) ^ (1L << i);
+			}
+			BitslicedEngine.roundKeyLanes(keyLanes, roundKeyLanes);
+			engine.crypt(lanes, 0, roundKeyLanes, false);
+			System.arraycopy(lanes, 0, plaintextChanges, 0, 64);
+
+			// Lane t: the key with bit t flipped, the same plaintext everywhere
+			for(int i=0 ; i < 64 ; i++) {
+				keyLanes[i] ^= 1L << i;
+				lanes[i] = -((plaintext >>> (63 - i)) & 1);
+			}
+			BitslicedEngine.roundKeyLanes(keyLanes, roundKeyLanes);
+			engine.crypt(lanes, 0, roundKeyLanes, false);
+
+			for(int j=0 ; j < 64 ; j++) {
+				// Lane 7 flipped a parity bit and holds the real ciphertext
+				long unchanged = -((lanes[j] >>> 7) & 1);
+				add(plaintextPlanes, COUNTER_BITS * j, plaintextChanges[j] ^ unchanged);
+				add(keyPlanes, COUNTER_BITS * j, lanes[j] ^ unchanged);
+			}
+			if(++pending == (1 << COUNTER_BITS) - 1) {
+				flush(plaintextPlanes, plaintextCounts);
+				flush(keyPlanes, keyCounts);
+				pending = 0;
+			}
+			if((n & 1023) == 1023) {
+				sampled.add(1024);
+			}
+		}
+		flush(plaintextPlanes, plaintextCounts);
+		flush(keyPlanes, keyCounts);
+		sampled.add(share & 1023);
+		return new long[][] { plaintextCounts, keyCounts };
+	}
+
+	// Adds bit t of x to the counter of lane t, the counters being held bit
+	// by bit in planes[base..base+COUNTER_BITS).
+	private static void add(long[] planes, int base, long x) {
+		for(int b=base ; x != 0 ; b++) {
+			long carry = planes[b] & x;
+			planes[b] ^= x;
+			x = carry;
+		}
+	}
+
+	// Adds the bitsliced counters of every output bit j to counts[64*t + j]
+	// and clears them.
+	private static void flush(long[] planes, long[] counts) {
+		for(int j=0 ; j < 64 ; j++) {
+			for(int b=0 ; b < COUNTER_BITS ; b++) {
+				long plane = planes[COUNTER_BITS*j + b];
+				while(plane != 0) {
+					int t = Long.numberOfTrailingZeros(plane);
+					counts[64*t + j] += 1L << b;
+					plane &= plane - 1;
+				}
+				planes[COUNTER_BITS*j + b] = 0;
+			}
+		}
+	}
+
+	private static void print(Result result, boolean isKey, boolean showMatrix) {
+		String name = isKey ? "key" : "plaintext";
+		System.out.printf("%-9s  dependence: %.4f  avalanche: %.3f bits  SAC deviation: max %.4f, mean %.4f%n",
+				name, result.dependence(isKey), result.avalanche(isKey), result.maxDeviation(isKey), result.meanDeviation(isKey));
+		if(!showMatrix) {
+			return;
+		}
+		// One row per input bit, the percentage of changes of every output bit
+		for(int i=0 ; i < 64 ; i++) {
+			if(isKey && Result.isParity(i)) {
+				continue;
+			}
+			StringBuilder row = new StringBuilder(String.format("%s bit %2d:", name, i + 1));
+			for(int j=0 ; j < 64 ; j++) {
+				row.append(String.format(" %2d", Math.min(99, Math.round(100 * result.sac(isKey, i, j)))));
+			}
+			System.out.println(row);
+		}
+	}
+
+	// Usage: AvalancheAnalysis [samples] [standard|random] [seed] [workers] [matrix]
+	public static void main(String[] args) throws InterruptedException {
+		long samples = args.length > 0 ? Long.parseLong(args[0]) : 1 << 20;
+		String sboxes = args.length > 1 ? args[1] : "standard";
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		boolean showMatrix = args.length > 4 && args[4].equals("matrix");
+
+		byte[][] RS = BatchCli.sboxes(sboxes, seed);
+		AvalancheAnalysis analysis = new AvalancheAnalysis(RS);
+		System.out.println("Sampling " + samples + " plaintexts and keys with the " + sboxes + " S-boxes, seed " + seed + ", on " + workers + " threads");
+		long start = System.nanoTime();
+		Thread reporter = new Thread(() -> {
+			try {
+				while(true) {
+					TimeUnit.SECONDS.sleep(1);
+					long done = analysis.sampled();
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.out.printf("%d / %d samples, %.0f per second%n", done, samples, done / seconds);
+				}
+			} catch(InterruptedException e) {
+				// analysis finished
+			}
+		});
+		reporter.setDaemon(true);
+		reporter.start();
+		Result result = analysis.run(samples, seed, workers);
+		reporter.interrupt();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d samples (%d encryptions) in %.2f s (%.0f samples per second)%n",
+				samples, 128 * samples, seconds, samples / seconds);
+		print(result, false, showMatrix);
+		print(result, true, showMatrix);
+	}
+}
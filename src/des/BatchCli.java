@@ -0,0 +1,364 @@
+package des;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Non-interactive front end for regression and known-answer runs. Reads
+// newline separated "key,text" records, both 16 character hexadecimal values,
+// and writes one line per record with the encrypted (or decrypted) text in
+// upper case hexadecimal, in the order of the input.
+//
+// The input is read as raw bytes in chunks of about CHUNK_SIZE bytes, cut
+// after the last complete line, that a pool of workers turns into output
+// bytes; records are parsed and formatted with HexCodec straight from and
+// into the byte arrays, without a String per line. The reader keeps at most
+// two chunks per worker in flight and writes their output strictly in
+// order, so memory stays bounded however long the input is. A record that
+// cannot be parsed gives an "error: ..." line in its place; blank lines are
+// copied as they are.
+//
+// Key schedules come from a CipherCache unless it is turned off, so inputs
+// that use the same keys over and over only build each schedule once.
+final class BatchCli {
+	static final int CHUNK_SIZE = 1 << 20;
+	// Key schedules kept by default
+	static final int CACHE_SIZE = 1 << 12;
+
+	private final BlockEngine engine;
+	private final SboxSet sboxes;
+	private final CipherCache ciphers;
+	private final boolean isDecrypt;
+	private final int threads;
+	private long records;
+	private long errors;
+
+	// Without a cache (ciphers null) every record builds its key schedule.
+	BatchCli(SboxSet sboxes, CipherCache ciphers, boolean isDecrypt, int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("threads=" + threads);
+		}
+		this.engine = ciphers == null ? new BlockEngine(sboxes.toArray()) : null;
+		this.sboxes = sboxes;
+		this.ciphers = ciphers;
+		this.isDecrypt = isDecrypt;
+		this.threads = threads;
+	}
+
+	// Output of one chunk: the text to write and how many of its lines were
+	// records and errors.
+	private static final class Result {
+		final byte[] text;
+		final int length;
+		final int records;
+		final int errors;
+
+		Result(byte[] text, int length, int records, int errors) {
+			this.text = text;
+			this.length = length;
+			this.records = records;
+			this.errors = errors;
+		}
+	}
+
+	public long records() {
+		return records;
+	}
+
+	public long errors() {
+		return errors;
+	}
+
+	// Streams every record of in to out. The streams are not closed.
+	public void run(InputStream in, OutputStream out) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<Result>> pending = new ArrayDeque<>();
+		try {
+			long firstLine = 1;
+			byte[] chunk = new byte[CHUNK_SIZE];
+			int length = 0;
+			while(true) {
+				int read = in.read(chunk, length, chunk.length - length);
+				if(read < 0) {
+					break;
+				}
+				length += read;
+				if(length < chunk.length) {
+					continue;
+				}
+				// Hand over the complete lines and keep the last partial one
+				int end = length;
+				while(end > 0 && chunk[end - 1] != '\n') {
+					end--;
+				}
+				if(end == 0) {
+					// A line longer than a chunk; it cannot be a record
+					end = length;
+				}
+				byte[] next = new byte[Math.max(CHUNK_SIZE, 2 * (length - end))];
+				System.arraycopy(chunk, end, next, 0, length - end);
+				firstLine = submit(pool, pending, chunk, end, firstLine, out);
+				chunk = next;
+				length -= end;
+			}
+			if(length > 0) {
+				submit(pool, pending, chunk, length, firstLine, out);
+			}
+			while(!pending.isEmpty()) {
+				write(pending.poll(), out);
+				Metrics.BATCH_QUEUE.set(pending.size());
+			}
+			out.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Queues the lines of text[0..length) and returns the number of the line
+	// after them. Waits for the oldest chunk first when enough are queued.
+	private long submit(ExecutorService pool, ArrayDeque<Future<Result>> pending, byte[] text, int length, long firstLine, OutputStream out)
+			throws IOException, InterruptedException {
+		if(pending.size() == 2 * threads) {
+			write(pending.poll(), out);
+		}
+		int queueDepth = pending.size();
+		pending.add(pool.submit(() -> process(text, length, firstLine, queueDepth)));
+		Metrics.BATCH_QUEUE.set(pending.size());
+		long lines = 0;
+		for(int i=0 ; i < length ; i++) {
+			if(text[i] == '\n') {
+				lines++;
+			}
+		}
+		return firstLine + lines;
+	}
+
+	private void write(Future<Result> future, OutputStream out) throws IOException, InterruptedException {
+		Result result;
+		try {
+			result = future.get();
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("batch worker failed", e.getCause());
+		}
+		out.write(result.text, 0, result.length);
+		records += result.records;
+		errors += result.errors;
+	}
+
+	// Turns the lines of text[0..length) into output lines. A line with a
+	// record is rewritten as 16 digits and a new line, which needs at most as
+	// many bytes as the record itself, so error messages are the only reason
+	// the output can outgrow the input. queueDepth is the number of chunks
+	// that were ahead of this one.
+	private Result process(byte[] text, int length, long firstLine, int queueDepth) {
+		Events.CipherBatch event = new Events.CipherBatch();
+		event.begin();
+		byte[] out = new byte[length + 17];
+		int size = 0;
+		int records = 0;
+		int errors = 0;
+		long line = firstLine;
+		for(int start=0 ; start < length ; line++) {
+			int end = start;
+			while(end < length && text[end] != '\n') {
+				end++;
+			}
+			int from = start;
+			int to = end;
+			start = end + 1;
+			while(from < to && isBlank(text[from])) {
+				from++;
+			}
+			while(to > from && isBlank(text[to - 1])) {
+				to--;
+			}
+			if(from == to) {
+				out[size++] = '\n';
+				continue;
+			}
+			records++;
+			try {
+				int comma = from;
+				while(comma < to && text[comma] != ',') {
+					comma++;
+				}
+				if(comma == to) {
+					throw new IllegalArgumentException("expected key,text");
+				}
+				long key = parseHex(text, from, comma);
+				long block = parseHex(text, comma + 1, to);
+				long result;
+				if(ciphers != null) {
+					CipherCache.Cipher cipher = ciphers.get(key, sboxes);
+					result = isDecrypt ? cipher.decrypt(block) : cipher.encrypt(block);
+				} else {
+					KeySchedule schedule = KeySchedule.of(key);
+					result = isDecrypt ? engine.decrypt(block, schedule) : engine.encrypt(block, schedule);
+				}
+				HexCodec.format(result, out, size);
+				size += HexCodec.DIGITS;
+				out[size++] = '\n';
+			} catch(IllegalArgumentException e) {
+				errors++;
+				byte[] message = ("error: line " + line + ": " + e.getMessage() + "\n").getBytes(StandardCharsets.US_ASCII);
+				if(size + message.length + 17 > out.length) {
+					out = Arrays.copyOf(out, Math.max(2 * out.length, size + message.length + 17));
+				}
+				System.arraycopy(message, 0, out, size, message.length);
+				size += message.length;
+			}
+		}
+		Metrics.blocks(isDecrypt, records - errors);
+		event.source = "batch";
+		if(isDecrypt) {
+			event.decrypted = records - errors;
+		} else {
+			event.encrypted = records - errors;
+		}
+		event.queueDepth = queueDepth;
+		event.commit();
+		return new Result(out, size, records, errors);
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	// Parses the 16 hexadecimal digits in text[from..to), allowing spaces
+	// around them.
+	static long parseHex(byte[] text, int from, int to) {
+		while(from < to && text[from] == ' ') {
+			from++;
+		}
+		while(to > from && text[to - 1] == ' ') {
+			to--;
+		}
+		if(to - from != HexCodec.DIGITS) {
+			throw new IllegalArgumentException("expected 16 hexadecimal digits, got " + (to - from));
+		}
+		return HexCodec.parse(text, from);
+	}
+
+	// The S-box set to use: the standard DES boxes or 8 random ones drawn
+	// from the seed, so a run with random boxes can be repeated.
+	static byte[][] sboxes(String name, long seed) {
+		if(name.equals("standard")) {
+			return DES.S;
+		}
+		if(name.equals("random")) {
+			SplittableRandom random = new SplittableRandom(seed);
+			byte[][] RS = new byte[8][64];
+			for(int i=0 ; i < 8 ; i++) {
+				Sboxes.random(random, RS[i]);
+			}
+			return RS;
+		}
+		throw new IllegalArgumentException("unknown S-box set " + name);
+	}
+
+	// Prints the L, R, e, nonlinearity and bias of every S-box of the set.
+	static void analyze(byte[][] RS, Appendable out) throws IOException {
+		for(int i=0 ; i < RS.length ; i++) {
+			int[] ddt = DifferentialTable.compute(RS[i]);
+			int[] lat = LinearTable.compute(RS[i]);
+			int L = DifferentialTable.l(ddt);
+			int R = DifferentialTable.r(ddt);
+			out.append("Sbox " + (i+1) + "  L: " + L + "  R: " + R + "  e: " + DifferentialTable.e(L, R)
+					+ "  NL: " + LinearTable.nonlinearity(lat) + "  bias: " + LinearTable.maxBias(lat) + "\n");
+		}
+	}
+
+	private static void usage() {
+		System.err.println("Usage: BatchCli [--decrypt] [--in <file>] [--out <file>] [--threads <n>]");
+		System.err.println("                [--sboxes standard|random] [--seed <n>] [--cache <keys>] [--analyze]");
+		System.err.println("Reads key,text lines of 16 hexadecimal characters each (stdin and stdout by default).");
+		System.err.println("--cache 0 builds the key schedule of every record instead of caching them.");
+	}
+
+	public static void main(String[] args) {
+		boolean isDecrypt = false;
+		boolean analyze = false;
+		String in = null;
+		String out = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String sboxes = "standard";
+		long seed = 0;
+		int cacheSize = CACHE_SIZE;
+		try {
+			for(int i=0 ; i < args.length ; i++) {
+				switch(args[i]) {
+				case "--decrypt":
+					isDecrypt = true;
+					break;
+				case "--analyze":
+					analyze = true;
+					break;
+				case "--in":
+					in = args[++i];
+					break;
+				case "--out":
+					out = args[++i];
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--sboxes":
+					sboxes = args[++i];
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "--cache":
+					cacheSize = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("unknown option " + args[i]);
+				}
+			}
+		} catch(ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			usage();
+			System.exit(2);
+			return;
+		}
+
+		try(InputStream input = in == null ? System.in : new FileInputStream(in);
+				OutputStream output = out == null ? System.out : new FileOutputStream(out)) {
+			byte[][] RS = sboxes(sboxes, seed);
+			if(analyze) {
+				analyze(RS, System.err);
+			}
+			CipherCache ciphers = cacheSize > 0 ? new CipherCache(cacheSize, Math.min(cacheSize, 4 * threads), new SboxCache(1)) : null;
+			BatchCli cli = new BatchCli(SboxSet.of(RS), ciphers, isDecrypt, threads);
+			long start = System.nanoTime();
+			cli.run(input, output);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.printf("%d records, %d errors in %.3f s (%.0f per second)%n",
+					cli.records(), cli.errors(), seconds, cli.records() / seconds);
+			if(ciphers != null) {
+				System.err.println(ciphers);
+			}
+			if(Metrics.ENABLED) {
+				Metrics.report(System.err);
+			}
+			if(cli.errors() > 0) {
+				System.exit(1);
+			}
+		} catch(IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.exit(2);
+		}
+	}
+}
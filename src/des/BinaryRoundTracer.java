@@ -0,0 +1,92 @@
+package des;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Records the rounds of every block as fixed size binary records, compact
+// enough to keep the trace of many blocks for a debugging session. A record
+// is a type byte followed by:
+//   START   isDecrypt (byte), L0 (int), R0 (int)
+//   ROUND   round (byte), round key (long), L (int), R (int)
+//   FINISH  output (long)
+// replay() reads a trace back and hands it to another observer, for
+// instance a TextRoundTracer.
+final class BinaryRoundTracer implements RoundObserver {
+	static final byte START = 1;
+	static final byte ROUND = 2;
+	static final byte FINISH = 3;
+
+	private final DataOutput out;
+
+	BinaryRoundTracer(DataOutput out) {
+		this.out = out;
+	}
+
+	@Override
+	public void start(boolean isDecrypt, int l, int r) {
+		try {
+			out.writeByte(START);
+			out.writeBoolean(isDecrypt);
+			out.writeInt(l);
+			out.writeInt(r);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void round(int round, long roundKey, int l, int r) {
+		try {
+			out.writeByte(ROUND);
+			out.writeByte(round);
+			out.writeLong(roundKey);
+			out.writeInt(l);
+			out.writeInt(r);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void finish(long output) {
+		try {
+			out.writeByte(FINISH);
+			out.writeLong(output);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Feeds every record of a trace to observer, until the end of the input.
+	static void replay(DataInput in, RoundObserver observer) throws IOException {
+		while(true) {
+			int type;
+			try {
+				type = in.readByte();
+			} catch(EOFException e) {
+				return;
+			}
+			switch(type) {
+			case START:
+				boolean isDecrypt = in.readBoolean();
+				int l0 = in.readInt();
+				observer.start(isDecrypt, l0, in.readInt());
+				break;
+			case ROUND:
+				int round = in.readByte();
+				long roundKey = in.readLong();
+				int l = in.readInt();
+				observer.round(round, roundKey, l, in.readInt());
+				break;
+			case FINISH:
+				observer.finish(in.readLong());
+				break;
+			default:
+				throw new IOException("unknown trace record type " + type);
+			}
+		}
+	}
+}
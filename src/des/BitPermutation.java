@@ -0,0 +1,46 @@
+package des;
+
+// A DES style bit permutation (IP, FP, E, P, PC1, PC2) compiled into byte
+// lookup tables. The permutation tables in DES.java number the bits from 1
+// starting at the most significant bit, and that is the convention used for
+// the longs handled here as well: bit 1 of an n bit value is bit (n-1) of the
+// long. Every input byte selects a precomputed mask of the output bits it
+// feeds, so a permutation costs one lookup per input byte and allocates
+// nothing.
+final class BitPermutation {
+	private final long[] table;
+	private final int inputBytes;
+	private final int inputBits;
+
+	BitPermutation(byte[] positions, int inputBits) {
+		if(inputBits % 8 != 0 || inputBits > 64 || positions.length > 64) {
+			throw new IllegalArgumentException("unsupported permutation width: " + inputBits + " -> " + positions.length);
+		}
+		this.inputBits = inputBits;
+		this.inputBytes = inputBits / 8;
+		this.table = new long[inputBytes * 256];
+		int outputBits = positions.length;
+		for(int i=0 ; i < outputBits ; i++) {
+			// positions[i] is the (1 based) input bit that ends up as output
+			// bit i+1. Find the byte it lives in and its mask inside that byte.
+			int p = positions[i] - 1;
+			int b = p >>> 3;
+			int mask = 0x80 >>> (p & 7);
+			long out = 1L << (outputBits - 1 - i);
+			for(int v=0 ; v < 256 ; v++) {
+				if((v & mask) != 0) {
+					table[(b << 8) | v] |= out;
+				}
+			}
+		}
+	}
+
+	long permute(long input) {
+		long output = 0;
+		int shift = inputBits - 8;
+		for(int b=0 ; b < inputBytes ; b++, shift -= 8) {
+			output |= table[(b << 8) | ((int) (input >>> shift) & 0xFF)];
+		}
+		return output;
+	}
+}
@@ -0,0 +1,199 @@
+package des;
+
+// Bitsliced DES: 64 independent blocks are encrypted at once by keeping bit i
+// of every block in lane i, one long per bit position. The permutations and
+// the expansion then reduce to picking other lanes, and each S-box becomes a
+// small boolean circuit evaluated with and/xor on whole longs, so one pass of
+// the circuit works on all 64 blocks together.
+//
+// Any S-box set can be compiled, not only the recommended S. Every output bit
+// of an S-box is a boolean function of its 6 input bits b1..b6. The circuit
+// first builds the 16 possible functions of (b5, b6), then picks one of them
+// for each of the 16 values of b1..b4 and merges them with a multiplexer tree
+// driven by b4, b3, b2 and b1.
+//
+// An engine is immutable and may be shared between threads. The arrays of
+// lanes passed in belong to the caller.
+final class BitslicedEngine {
+	// KEY_BITS[48*n + k] is the bit of the 64 bit key (0 being the most
+	// significant) that becomes bit k of round key n. The key schedule only
+	// moves bits around, so in bitsliced form it is a gather from the key
+	// lanes and every lane may carry a different key.
+	private static final int[] KEY_BITS = new int[16 * 48];
+	// P_INVERSE[q] is the position of the Fiestel output bit fed by bit q of
+	// the concatenated S-box outputs.
+	private static final int[] P_INVERSE = new int[32];
+
+	static {
+		int[] c = new int[28];
+		int[] d = new int[28];
+		for(int i=0 ; i < 28 ; i++) {
+			c[i] = DES.PC1[i] - 1;
+			d[i] = DES.PC1[i+28] - 1;
+		}
+		int shift = 0;
+		for(int n=0 ; n < 16 ; n++) {
+			shift += DES.rotations[n];
+			for(int k=0 ; k < 48 ; k++) {
+				int p = DES.PC2[k] - 1;
+				KEY_BITS[48*n + k] = p < 28 ? c[(p + shift) % 28] : d[(p - 28 + shift) % 28];
+			}
+		}
+		for(int j=0 ; j < 32 ; j++) {
+			P_INVERSE[DES.P[j] - 1] = j;
+		}
+	}
+
+	// leaves[64*(4*i + k) + g] is the truth table over (b5, b6) of output bit k
+	// of S-box i when b1..b4 equals g, as an index into the 16 functions of
+	// (b5, b6). Only the low 16 of each 64 entries are used; the padding keeps
+	// the indexing a shift.
+	private final byte[] leaves = new byte[8 * 4 * 64];
+
+	BitslicedEngine(byte[][] RS) {
+		if(RS.length != 8) {
+			throw new IllegalArgumentException("expected 8 S-boxes, got " + RS.length);
+		}
+		for(int i=0 ; i < 8 ; i++) {
+			if(RS[i].length != 64) {
+				throw new IllegalArgumentException("S-box " + (i+1) + " has " + RS[i].length + " entries instead of 64");
+			}
+			for(int k=0 ; k < 4 ; k++) {
+				for(int g=0 ; g < 16 ; g++) {
+					int table = 0;
+					for(int low=0 ; low < 4 ; low++) {
+						int value = RS[i][Sboxes.index((g << 2) | low)];
+						table |= ((value >>> (3 - k)) & 1) << low;
+					}
+					leaves[((4*i + k) << 6) | g] = (byte) table;
+				}
+			}
+		}
+	}
+
+	// Round key lanes (16 rounds of 48 lanes) for 64 blocks that all use the
+	// same key.
+	static long[] roundKeyLanes(KeySchedule key) {
+		long[] lanes = new long[16 * 48];
+		for(int n=0 ; n < 16 ; n++) {
+			long roundKey = key.roundKey(n);
+			for(int k=0 ; k < 48 ; k++) {
+				lanes[48*n + k] = -((roundKey >>> (47 - k)) & 1);
+			}
+		}
+		return lanes;
+	}
+
+	// Round key lanes from 64 key lanes, where lane i holds bit i of the key
+	// used for every block.
+	static void roundKeyLanes(long[] keyLanes, long[] roundKeyLanes) {
+		for(int i=0 ; i < KEY_BITS.length ; i++) {
+			roundKeyLanes[i] = keyLanes[KEY_BITS[i]];
+		}
+	}
+
+	// Encrypts 64 blocks starting at blocks[offset] in place.
+	public void encryptBlocks(long[] blocks, int offset, long[] roundKeyLanes) {
+		transpose(blocks, offset);
+		crypt(blocks, offset, roundKeyLanes, false);
+		transpose(blocks, offset);
+	}
+
+	public void decryptBlocks(long[] blocks, int offset, long[] roundKeyLanes) {
+		transpose(blocks, offset);
+		crypt(blocks, offset, roundKeyLanes, true);
+		transpose(blocks, offset);
+	}
+
+	// Encrypts or decrypts the 64 lanes starting at lanes[offset] in place.
+	// Lane i holds bit i+1 (in the numbering of the DES tables) of all 64
+	// blocks.
+	public void crypt(long[] lanes, int offset, long[] roundKeyLanes, boolean isDecrypt) {
+		long[] l = new long[32];
+		long[] r = new long[32];
+		long[] newR = new long[32];
+		long[] functions = new long[16];
+		long[] selected = new long[16];
+		// The initial permutation only decides which lanes form L and R.
+		for(int i=0 ; i < 32 ; i++) {
+			l[i] = lanes[offset + DES.IP[i] - 1];
+			r[i] = lanes[offset + DES.IP[i+32] - 1];
+		}
+		for(int n=0 ; n < 16 ; n++) {
+			int keyBase = 48 * (isDecrypt ? 15 - n : n);
+			for(int i=0 ; i < 8 ; i++) {
+				int e = 6*i;
+				long b1 = r[DES.E[e] - 1] ^ roundKeyLanes[keyBase + e];
+				long b2 = r[DES.E[e+1] - 1] ^ roundKeyLanes[keyBase + e + 1];
+				long b3 = r[DES.E[e+2] - 1] ^ roundKeyLanes[keyBase + e + 2];
+				long b4 = r[DES.E[e+3] - 1] ^ roundKeyLanes[keyBase + e + 3];
+				long b5 = r[DES.E[e+4] - 1] ^ roundKeyLanes[keyBase + e + 4];
+				long b6 = r[DES.E[e+5] - 1] ^ roundKeyLanes[keyBase + e + 5];
+				functionsOf(b5, b6, functions);
+				for(int k=0 ; k < 4 ; k++) {
+					int q = 4*i + k;
+					int leafBase = q << 6;
+					for(int g=0 ; g < 16 ; g++) {
+						selected[g] = functions[leaves[leafBase | g]];
+					}
+					long out = mux(selected, b1, b2, b3, b4);
+					int j = P_INVERSE[q];
+					newR[j] = l[j] ^ out;
+				}
+			}
+			long[] swap = l;
+			l = r;
+			r = newR;
+			newR = swap;
+		}
+		// The preoutput is R16 L16; the final permutation picks lanes from it.
+		for(int i=0 ; i < 64 ; i++) {
+			int p = DES.FP[i] - 1;
+			lanes[offset + i] = p < 32 ? r[p] : l[p - 32];
+		}
+	}
+
+	// Fills f[t] with the function of (b5, b6) whose truth table is t, bit
+	// 2*b5 + b6 of t giving the output for those inputs.
+	private static void functionsOf(long b5, long b6, long[] f) {
+		f[0] = 0;
+		f[1] = ~b5 & ~b6;
+		f[2] = ~b5 & b6;
+		f[4] = b5 & ~b6;
+		f[8] = b5 & b6;
+		for(int t=3 ; t < 16 ; t++) {
+			if((t & (t - 1)) != 0) {
+				f[t] = f[t & (t - 1)] | f[t & -t];
+			}
+		}
+	}
+
+	// Selects selected[g] where g = b1 b2 b3 b4, one lane bit at a time.
+	private static long mux(long[] s, long b1, long b2, long b3, long b4) {
+		for(int g=0 ; g < 8 ; g++) {
+			s[g] = s[2*g] ^ ((s[2*g] ^ s[2*g+1]) & b4);
+		}
+		for(int g=0 ; g < 4 ; g++) {
+			s[g] = s[2*g] ^ ((s[2*g] ^ s[2*g+1]) & b3);
+		}
+		for(int g=0 ; g < 2 ; g++) {
+			s[g] = s[2*g] ^ ((s[2*g] ^ s[2*g+1]) & b2);
+		}
+		return s[0] ^ ((s[0] ^ s[1]) & b1);
+	}
+
+	// Transposes the 64x64 bit matrix held in a[offset..offset+63] in place:
+	// bit 63-j of a[offset+i] trades places with bit 63-i of a[offset+j]. It
+	// turns 64 blocks into 64 lanes and back again, in 6 passes of swapping
+	// ever smaller sub-blocks.
+	static void transpose(long[] a, int offset) {
+		long m = 0x00000000FFFFFFFFL;
+		for(int j=32 ; j != 0 ; j >>>= 1, m ^= (m << j)) {
+			for(int k=0 ; k < 64 ; k = ((k | j) + 1) & ~j) {
+				long t = (a[offset + k] ^ (a[offset + (k | j)] >>> j)) & m;
+				a[offset + k] ^= t;
+				a[offset + (k | j)] ^= t << j;
+			}
+		}
+	}
+}
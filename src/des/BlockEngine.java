@@ -0,0 +1,140 @@
+package des;
+
+// DES block engine working on whole 64-bit blocks held in a long instead of
+// one int per bit. It is built once from an S-box set (the recommended S or a
+// random RS from sboxesGenerator) and combines every S-box with the P
+// permutation into an "SP" table, so a round of the Fiestel function is an
+// expansion, a xor and eight table lookups. The tables are never modified
+// after construction, so one engine can be shared by any number of threads,
+// and encrypting or decrypting a block allocates nothing.
+final class BlockEngine {
+	static final BitPermutation IP = new BitPermutation(DES.IP, 64);
+	static final BitPermutation FP = new BitPermutation(DES.FP, 64);
+	static final BitPermutation E = new BitPermutation(DES.E, 32);
+	static final BitPermutation P = new BitPermutation(DES.P, 32);
+
+	// sp[64*i + x] is the 32 bit output of the Fiestel function contributed by
+	// S-box i for the 6 bit input x, already permuted by P.
+	private final int[] sp = new int[8 * 64];
+
+	BlockEngine(byte[][] RS) {
+		if(RS.length != 8) {
+			throw new IllegalArgumentException("expected 8 S-boxes, got " + RS.length);
+		}
+		for(int i=0 ; i < 8 ; i++) {
+			if(RS[i].length != 64) {
+				throw new IllegalArgumentException("S-box " + (i+1) + " has " + RS[i].length + " entries instead of 64");
+			}
+			for(int x=0 ; x < 64 ; x++) {
+				int value = RS[i][Sboxes.index(x)] & 0xF;
+				sp[(i << 6) | x] = (int) P.permute((long) value << (28 - 4*i));
+			}
+		}
+	}
+
+	public long encrypt(long block, KeySchedule key) {
+		return FP.permute(rounds(IP.permute(block), key.roundKeys(), 0, 1));
+	}
+
+	// Decryption is the same process with the round keys used in reverse
+	// order.
+	public long decrypt(long block, KeySchedule key) {
+		return FP.permute(rounds(IP.permute(block), key.roundKeys(), 15, -1));
+	}
+
+	// Traced versions of encrypt and decrypt, for teaching and debugging.
+	// They are kept apart so the plain methods stay free of observer calls.
+	public long encrypt(long block, KeySchedule key, RoundObserver observer) {
+		return traced(block, key, false, observer);
+	}
+
+	public long decrypt(long block, KeySchedule key, RoundObserver observer) {
+		return traced(block, key, true, observer);
+	}
+
+	private long traced(long block, KeySchedule key, boolean isDecrypt, RoundObserver observer) {
+		long permuted = IP.permute(block);
+		int l = (int) (permuted >>> 32);
+		int r = (int) permuted;
+		observer.start(isDecrypt, l, r);
+		for(int n=0 ; n < 16 ; n++) {
+			long roundKey = key.roundKey(isDecrypt ? 15 - n : n);
+			int newL = l ^ fiestel(r, roundKey);
+			l = r;
+			r = newL;
+			observer.round(n + 1, roundKey, l, r);
+		}
+		long output = FP.permute(((long) r << 32) | (l & 0xFFFFFFFFL));
+		observer.finish(output);
+		return output;
+	}
+
+	// Runs the 16 rounds on an already permuted block (L in the upper and R in
+	// the lower 32 bits) using roundKeys[first], roundKeys[first+step], ...
+	// The result is the "preoutput" R16 L16, ready for the final permutation.
+	long rounds(long block, long[] roundKeys, int first, int step) {
+		int l = (int) (block >>> 32);
+		int r = (int) block;
+		for(int n=0, k=first ; n < 16 ; n++, k += step) {
+			int newL = l ^ fiestel(r, roundKeys[k]);
+			l = r;
+			r = newL;
+		}
+		return ((long) r << 32) | (l & 0xFFFFFFFFL);
+	}
+
+	// Runs only the first count rounds on an already permuted block and
+	// returns Ln || Rn, without the swap that ends the full cipher. This is
+	// the state reduced round experiments and attacks look at.
+	long rounds(long block, long[] roundKeys, int count) {
+		int l = (int) (block >>> 32);
+		int r = (int) block;
+		for(int n=0 ; n < count ; n++) {
+			int newL = l ^ fiestel(r, roundKeys[n]);
+			l = r;
+			r = newL;
+		}
+		return ((long) l << 32) | (r & 0xFFFFFFFFL);
+	}
+
+	// The xor of rounds(block, ...) and rounds(block ^ difference, ...). The
+	// two blocks of the pair go through the rounds side by side, so the
+	// lookups of one overlap with those of the other.
+	long pairDifference(long block, long difference, long[] roundKeys, int count) {
+		long other = block ^ difference;
+		int l1 = (int) (block >>> 32);
+		int r1 = (int) block;
+		int l2 = (int) (other >>> 32);
+		int r2 = (int) other;
+		for(int n=0 ; n < count ; n++) {
+			long roundKey = roundKeys[n];
+			int newL1 = l1 ^ fiestel(r1, roundKey);
+			int newL2 = l2 ^ fiestel(r2, roundKey);
+			l1 = r1;
+			r1 = newL1;
+			l2 = r2;
+			r2 = newL2;
+		}
+		return ((long) (l1 ^ l2) << 32) | ((r1 ^ r2) & 0xFFFFFFFFL);
+	}
+
+	// pairDifference for blocks[offset .. offset+length), written to
+	// differences from the same offset
+	void pairDifferences(long[] blocks, int offset, int length, long difference, long[] roundKeys, int count, long[] differences) {
+		for(int i=offset ; i < offset + length ; i++) {
+			differences[i] = pairDifference(blocks[i], difference, roundKeys, count);
+		}
+	}
+
+	int fiestel(int r, long roundKey) {
+		long x = E.permute(r & 0xFFFFFFFFL) ^ roundKey;
+		return sp[(int) (x >>> 42) & 0x3F]
+			| sp[64  | ((int) (x >>> 36) & 0x3F)]
+			| sp[128 | ((int) (x >>> 30) & 0x3F)]
+			| sp[192 | ((int) (x >>> 24) & 0x3F)]
+			| sp[256 | ((int) (x >>> 18) & 0x3F)]
+			| sp[320 | ((int) (x >>> 12) & 0x3F)]
+			| sp[384 | ((int) (x >>> 6) & 0x3F)]
+			| sp[448 | ((int) x & 0x3F)];
+	}
+}
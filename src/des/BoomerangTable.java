@@ -0,0 +1,61 @@
+package des;
+
+// Feistel boomerang connectivity table (FBCT) of a 6x4 S-box. The usual BCT
+// needs an invertible S-box; the Feistel variant, which only involves the
+// forward S-box, is the one that applies to the DES round function.
+//
+// Entry fbct[64*a + b] counts the inputs x for which
+// S(x) ^ S(x^a) ^ S(x^b) ^ S(x^a^b) = 0, i.e. the derivative in a takes the
+// same value at x and at x^b. Rows and columns 0 and the diagonal are always
+// 64; the boomerang uniformity is the biggest entry elsewhere, the lower the
+// better. SboxBatch computes the same uniformity for 16 S-boxes at a time.
+final class BoomerangTable {
+	static final int INPUTS = 64;
+	static final int SIZE = INPUTS * INPUTS;
+
+	private BoomerangTable() {
+	}
+
+	public static int[] compute(byte[] sbox) {
+		int[] fbct = new int[SIZE];
+		compute(sbox, fbct);
+		return fbct;
+	}
+
+	// Fills fbct (SIZE entries) with the table of sbox, given in the row and
+	// column layout of DES.S.
+	public static void compute(byte[] sbox, int[] fbct) {
+		int[] s = new int[INPUTS];
+		int[] derivative = new int[INPUTS];
+		for(int x=0 ; x < INPUTS ; x++) {
+			s[x] = sbox[Sboxes.index(x)] & 0xF;
+		}
+		for(int a=0 ; a < INPUTS ; a++) {
+			for(int x=0 ; x < INPUTS ; x++) {
+				derivative[x] = s[x] ^ s[x ^ a];
+			}
+			for(int b=0 ; b < INPUTS ; b++) {
+				int count = 0;
+				for(int x=0 ; x < INPUTS ; x++) {
+					if(derivative[x] == derivative[x ^ b]) {
+						count++;
+					}
+				}
+				fbct[a*INPUTS + b] = count;
+			}
+		}
+	}
+
+	// The biggest entry with a, b and a ^ b all non-zero
+	public static int uniformity(int[] fbct) {
+		int max = 0;
+		for(int a=1 ; a < INPUTS ; a++) {
+			for(int b=1 ; b < INPUTS ; b++) {
+				if(a != b) {
+					max = Math.max(max, fbct[a*INPUTS + b]);
+				}
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,173 @@
+package des;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps ready to use ciphers, a KeySchedule together with the compiled
+// BlockEngine of its S-box set, for the (key, S-box set) pairs seen last, so
+// a key that comes back does not go through PC1, the rotations and PC2
+// again. The engines come from an SboxCache and are shared by all the keys
+// of a set.
+//
+// The cache is split into stripes, each an LRU map of its own behind its
+// own lock, so threads looking up different keys rarely wait for each
+// other; a pair always falls in the same stripe. Each stripe holds at most
+// its share of the capacity and drops its least recently used pair when it
+// is full, which bounds the memory whatever the churn of keys. The key
+// schedule of a missing pair is built outside the lock. Hits, misses and
+// evictions are counted in LongAdders, which cost next to nothing to update
+// from many threads.
+final class CipherCache {
+	// A key schedule bound to the engine of its S-box set
+	static final class Cipher {
+		final BlockEngine engine;
+		final KeySchedule key;
+
+		Cipher(BlockEngine engine, KeySchedule key) {
+			this.engine = engine;
+			this.key = key;
+		}
+
+		public long encrypt(long block) {
+			return engine.encrypt(block, key);
+		}
+
+		public long decrypt(long block) {
+			return engine.decrypt(block, key);
+		}
+	}
+
+	private static final class Pair {
+		final long key;
+		final SboxSet sboxes;
+		final int hash;
+
+		Pair(long key, SboxSet sboxes) {
+			this.key = key;
+			this.sboxes = sboxes;
+			int h = Long.hashCode(key * 0x9E3779B97F4A7C15L) ^ sboxes.hashCode();
+			this.hash = h ^ (h >>> 16);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Pair)) {
+				return false;
+			}
+			Pair pair = (Pair) other;
+			return key == pair.key && sboxes.equals(pair.sboxes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private final class Stripe extends LinkedHashMap<Pair, Cipher> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		Stripe(int capacity) {
+			// Access order turns the map into an LRU list
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Pair, Cipher> eldest) {
+			if(size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private final Stripe[] stripes;
+	private final SboxCache engines;
+	private final int capacity;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	// stripes is rounded up to a power of two, or down when that would leave
+	// a stripe without room, and the capacity shared between them.
+	CipherCache(int capacity, int stripes, SboxCache engines) {
+		if(capacity < 1 || stripes < 1 || stripes > capacity) {
+			throw new IllegalArgumentException("capacity=" + capacity + ", stripes=" + stripes);
+		}
+		int count = 1;
+		while(count < stripes) {
+			count <<= 1;
+		}
+		if(count > capacity) {
+			count >>>= 1;
+		}
+		this.stripes = new Stripe[count];
+		for(int i=0 ; i < count ; i++) {
+			// The first capacity % count stripes take one more
+			this.stripes[i] = new Stripe(capacity / count + (i < capacity % count ? 1 : 0));
+		}
+		this.engines = engines;
+		this.capacity = capacity;
+	}
+
+	public Cipher get(long key, byte[][] RS) {
+		return get(key, SboxSet.of(RS));
+	}
+
+	public Cipher get(long key, SboxSet sboxes) {
+		Pair pair = new Pair(key, sboxes);
+		Stripe stripe = stripes[pair.hash & (stripes.length - 1)];
+		synchronized(stripe) {
+			Cipher cipher = stripe.get(pair);
+			if(cipher != null) {
+				hits.increment();
+				return cipher;
+			}
+		}
+		misses.increment();
+		Cipher built = new Cipher(engines.engine(sboxes), KeySchedule.of(key));
+		synchronized(stripe) {
+			// Another thread may have built the same pair meanwhile; keep
+			// the cipher that is already cached.
+			Cipher cipher = stripe.get(pair);
+			if(cipher != null) {
+				return cipher;
+			}
+			stripe.put(pair, built);
+			return built;
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for(Stripe stripe : stripes) {
+			synchronized(stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "CipherCache[size=" + size() + "/" + capacity + ", stripes=" + stripes.length + ", hits=" + hits()
+				+ ", misses=" + misses() + ", evictions=" + evictions() + "]";
+	}
+}
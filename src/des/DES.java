@@ -0,0 +1,582 @@
+/*
+	Program to apply Encryption and Decryption of hexadecimal text Using DES algorithm with random generated S boxes
+	and sage implementation to
+	testify and compare the strength of pseudo-Random generated S-boxes against differential cryptanalysis 
+	with the recommended ones using Java
+
+	Author:Nick Athanasiou  https://github.com/Nickath
+	References: Manav Sanghavi		http://www.pracspedia.com/INS/DES-java.html
+	
+*/
+package des;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.util.*;
+
+
+class DES {
+	// Initial Permutation table
+	static final byte[] IP = { 
+		58, 50, 42, 34, 26, 18, 10, 2,
+		60, 52, 44, 36, 28, 20, 12, 4,
+		62, 54, 46, 38, 30, 22, 14, 6,
+		64, 56, 48, 40, 32, 24, 16, 8,
+		57, 49, 41, 33, 25, 17, 9,  1,
+		59, 51, 43, 35, 27, 19, 11, 3,
+		61, 53, 45, 37, 29, 21, 13, 5,
+		63, 55, 47, 39, 31, 23, 15, 7
+	};
+	
+	// Permuted Choice 1 table
+	static final byte[] PC1 = {
+		57, 49, 41, 33, 25, 17, 9,
+		1,  58, 50, 42, 34, 26, 18,
+		10, 2,  59, 51, 43, 35, 27,
+		19, 11, 3,  60, 52, 44, 36,
+		63, 55, 47, 39, 31, 23, 15,
+		7,  62, 54, 46, 38, 30, 22,
+		14, 6,  61, 53, 45, 37, 29,
+		21, 13, 5,  28, 20, 12, 4
+	};
+	
+	// Permuted Choice 2 table
+	static final byte[] PC2 = {
+		14, 17, 11, 24, 1,  5,
+		3,  28, 15, 6,  21, 10,
+		23, 19, 12, 4,  26, 8,
+		16, 7,  27, 20, 13, 2,
+		41, 52, 31, 37, 47, 55,
+		30, 40, 51, 45, 33, 48,
+		44, 49, 39, 56, 34, 53,
+		46, 42, 50, 36, 29, 32
+	};
+	
+	// Array to store the number of rotations that are to be done on each round
+	static final byte[] rotations = {
+		1, 1, 2, 2, 2, 2, 2, 2, 1, 2, 2, 2, 2, 2, 2, 1
+	};
+	
+	// Expansion (aka P-box) table
+	static final byte[] E = {
+		32, 1,  2,  3,  4,  5,
+		4,  5,  6,  7,  8,  9,
+		8,  9,  10, 11, 12, 13,
+		12, 13, 14, 15, 16, 17,
+		16, 17, 18, 19, 20, 21,
+		20, 21, 22, 23, 24, 25,
+		24, 25, 26, 27, 28, 29,
+		28, 29, 30, 31, 32, 1
+	};
+	
+	
+	
+	
+	
+	
+	
+	// S-boxes (i.e. Substitution boxes)
+		static final byte[][] S = { {
+			14, 4,  13, 1,  2,  15, 11, 8,  3,  10, 6,  12, 5,  9,  0,  7,
+			0,  15, 7,  4,  14, 2,  13, 1,  10, 6,  12, 11, 9,  5,  3,  8,
+			4,  1,  14, 8,  13, 6,  2,  11, 15, 12, 9,  7,  3,  10, 5,  0,
+			15, 12, 8,  2,  4,  9,  1,  7,  5,  11, 3,  14, 10, 0,  6,  13
+		}, {
+			15, 1,  8,  14, 6,  11, 3,  4,  9,  7,  2,  13, 12, 0,  5,  10,
+			3,  13, 4,  7,  15, 2,  8,  14, 12, 0,  1,  10, 6,  9,  11, 5,
+			0,  14, 7,  11, 10, 4,  13, 1,  5,  8,  12, 6,  9,  3,  2,  15,
+			13, 8,  10, 1,  3,  15, 4,  2,  11, 6,  7,  12, 0,  5,  14, 9
+		}, {
+			10, 0,  9,  14, 6,  3,  15, 5,  1,  13, 12, 7,  11, 4,  2,  8,
+			13, 7,  0,  9,  3,  4,  6,  10, 2,  8,  5,  14, 12, 11, 15, 1,
+			13, 6,  4,  9,  8,  15, 3,  0,  11, 1,  2,  12, 5,  10, 14, 7,
+			1,  10, 13, 0,  6,  9,  8,  7,  4,  15, 14, 3,  11, 5,  2,  12
+		}, {
+			7,  13, 14, 3,  0,  6,  9,  10, 1,  2,  8,  5,  11, 12, 4,  15,
+			13, 8,  11, 5,  6,  15, 0,  3,  4,  7,  2,  12, 1,  10, 14, 9,
+			10, 6,  9,  0,  12, 11, 7,  13, 15, 1,  3,  14, 5,  2,  8,  4,
+			3,  15, 0,  6,  10, 1,  13, 8,  9,  4,  5,  11, 12, 7,  2,  14
+		}, {
+			2,  12, 4,  1,  7,  10, 11, 6,  8,  5,  3,  15, 13, 0,  14, 9,
+			14, 11, 2,  12, 4,  7,  13, 1,  5,  0,  15, 10, 3,  9,  8,  6,
+			4,  2,  1,  11, 10, 13, 7,  8,  15, 9,  12, 5,  6,  3,  0,  14,
+			11, 8,  12, 7,  1,  14, 2,  13, 6,  15, 0,  9,  10, 4,  5,  3
+		}, {
+			12, 1,  10, 15, 9,  2,  6,  8,  0,  13, 3,  4,  14, 7,  5,  11,
+			10, 15, 4,  2,  7,  12, 9,  5,  6,  1,  13, 14, 0,  11, 3,  8,
+			9,  14, 15, 5,  2,  8,  12, 3,  7,  0,  4,  10, 1,  13, 11, 6,
+			4,  3,  2,  12, 9,  5,  15, 10, 11, 14, 1,  7,  6,  0,  8,  13
+		}, {
+			4,  11, 2,  14, 15, 0,  8,  13, 3,  12, 9,  7,  5,  10, 6,  1,
+			13, 0,  11, 7,  4,  9,  1,  10, 14, 3,  5,  12, 2,  15, 8,  6,
+			1,  4,  11, 13, 12, 3,  7,  14, 10, 15, 6,  8,  0,  5,  9,  2,
+			6,  11, 13, 8,  1,  4,  10, 7,  9,  5,  0,  15, 14, 2,  3,  12
+		}, {
+			13, 2,  8,  4,  6,  15, 11, 1,  10, 9,  3,  14, 5,  0,  12, 7,
+			1,  15, 13, 8,  10, 3,  7,  4,  12, 5,  6,  11, 0,  14, 9,  2,
+			7,  11, 4,  1,  9,  12, 14, 2,  0,  6,  10, 13, 15, 3,  5,  8,
+			2,  1,  14, 7,  4,  10, 8,  13, 15, 12, 9,  0,  3,  5,  6,  11
+		} };
+	
+	
+	// Permutation table
+	static final byte[] P = {
+		16, 7,  20, 21,
+		29, 12, 28, 17,
+		1,  15, 23, 26,
+		5,  18, 31, 10,
+		2,  8,  24, 14,
+		32, 27, 3,  9,
+		19, 13, 30, 6,
+		22, 11, 4,  25
+	};
+	
+	// Final permutation (aka Inverse permutation) table
+	static final byte[] FP = {
+		40, 8, 48, 16, 56, 24, 64, 32,
+		39, 7, 47, 15, 55, 23, 63, 31,
+		38, 6, 46, 14, 54, 22, 62, 30,
+		37, 5, 45, 13, 53, 21, 61, 29,
+		36, 4, 44, 12, 52, 20, 60, 28,
+		35, 3, 43, 11, 51, 19, 59, 27,
+		34, 2, 42, 10, 50, 18, 58, 26,
+		33, 1, 41, 9, 49, 17, 57, 25
+	};
+	
+	
+	
+	//function Generating 8 Random S-boxes for the addressing of the 6bit groups to 4 bit groups
+	public  static  byte[][] sboxesGenerator(byte[][] RS)
+	{
+		return sboxesGenerator(RS, new Random());
+	}
+	
+	//same as above with the caller's generator, so a seeded Random gives the same S-boxes every run
+	public  static  byte[][] sboxesGenerator(byte[][] RS, Random rg)
+	{
+		for (int i=0; i<8; i++)
+		{
+			
+			String Sbox = String.valueOf(i+1);
+			System.out.println("\n\nSbox "+ Sbox +"");
+			//System.out.print("[");
+			for(int j=0; j<64; j++)
+			{
+				if(j==16 || j== 32 || j == 48 || j ==64)
+				{
+					System.out.println();
+				}
+				int n = rg.nextInt(16); //rg object of class Random, generate pseudo-random numbers from 0 to 15
+				RS[i][j] = (byte) n;//store random number byte n into RS table
+				if(j<63)
+				{
+				System.out.print(RS[i][j] + ",");
+				}
+				else if(j==63)
+				{
+					System.out.print(RS[i][j] );
+				}
+			}
+		
+		
+		}
+		System.out.println("\n");
+
+		return RS;
+		
+	}
+	
+	//the ddtrenewer function fills all elements in DDT table with zeros
+	public static int[][] ddtrenewer(int[][] DDT)
+	{
+		for (int i=0; i<64; i++)
+		{
+			for(int j=0; j<16; j++)
+			{
+				DDT[i][j]=0;
+			}
+		}
+		return DDT;
+	}
+	
+	public static double[] RecommendedSboxesE()
+	{
+		int DDT[] = new int[DifferentialTable.SIZE];
+		int LAT[] = new int[LinearTable.SIZE];
+		double Re[] = new double[8];
+		
+		System.out.println("RECOMMENDED S-BOXES FOR THE ENCRYPTION-DECRYPTION OF PLAIN-TEXT USING DES ALGORITHM");
+		
+		for(int w=0; w<8; w++)
+		{
+			//the DDT has a row for every difference x1(+)x2 of the 64x64 pairs of
+			//6 bit inputs and a column for every difference S(x1)(+)S(x2) of the outputs
+			DifferentialTable.compute(S[w], DDT);
+			//the biggest value in the DDT table is considered as L and the non-zero
+			//entries in column 1 aside from (0,0) element are considered as R
+			int L = DifferentialTable.l(DDT);
+			int R = DifferentialTable.r(DDT);
+			Re[w] = DifferentialTable.e(L, R);
+			//strength against linear cryptanalysis: nonlinearity and maximum linear bias of the LAT
+			LinearTable.compute(S[w], LAT);
+			System.out.println("Random S-Box "+(w+1));
+			System.out.println("L:  " +L);
+			System.out.println("R:  "+R);
+			System.out.println("e   : " +Re[w]);
+			System.out.println("NL  : " +LinearTable.nonlinearity(LAT));
+			System.out.println("bias: " +LinearTable.maxBias(LAT));
+		}
+		return Re;
+	}
+	
+	
+	
+	public static void main(String args[]) {
+		
+		//non-interactive mode: streams key,text records through the cipher, see BatchCli
+		if(args.length > 0 && args[0].equals("--batch"))
+		{
+			BatchCli.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
+	//DDT Table
+		int DDT[] = new int[DifferentialTable.SIZE];
+		int LAT[] = new int[LinearTable.SIZE];
+		
+		double[] Re = RecommendedSboxesE();
+		double	e[] = new double[8];
+		
+		System.out.println("RANDOM GENERATED S-BOXES FOR THE ENCRYPTION-DECRYPTION OF PLAIN-TEXT USING DES ALGORITHM");
+	    final byte[][] RS = new byte[8][64];
+	  //creating 8 boxes with random numbers from 0 to 15
+			sboxesGenerator(RS);
+			//Each pair of 6 bits inputs has 64x64  (64^2) possible pair of outputs, all of them are counted in the DDT table
+			for(int w=0; w<8; w++)
+			{
+				DifferentialTable.compute(RS[w], DDT);
+			    System.out.println("\n DDT TABLE" +(w+1)+ " GENERATED ");
+			
+			//prints the DDT Table
+			DDTprinter(DDT);
+			
+			//calculating the biggest value in the DDT table considering it as L 
+			//and the non-zero entries in column 1 aside from (0,0) element, considering as R
+			int L = DifferentialTable.l(DDT);
+			int R = DifferentialTable.r(DDT);
+			//S boxes are nxs = 6x4 elements which means they take as input a group of 6 bits and convert into a 4 bit group
+			e[w] = DifferentialTable.e(L, R);
+			LinearTable.compute(RS[w], LAT);
+			System.out.println("L:  " +L);
+			System.out.println("R:  "+R);
+			System.out.println("e   : " +e[w]);
+			System.out.println("NL  : " +LinearTable.nonlinearity(LAT));
+			System.out.println("bias: " +LinearTable.maxBias(LAT));
+			}
+			System.out.println("S-boxes comparison between the Random generated"
+					+ "S boxes and the recommended ones");
+			System.out.println("RECOMMENDED S BOX         RANDOM S BOX              RecSBox ==> RandomSBox");
+			
+					for(int i =0; i<8; i++)
+					{
+						System.out.println((i+1) +")" +Re[i] +"               "+e[i] + "                   "+ Math.floor(((Re[i]/e[i])*100)*100)/100 + "%");
+					}
+			
+			
+		String input ;
+		String arg= null;
+		//one Scanner reads both values; a second one would lose the lines the first has buffered
+		Scanner scan = new Scanner(System.in);
+		do
+		{
+			
+		System.out.println("Enter the plain text as a 16 character hexadecimal value :");
+	    input = scan.nextLine();
+	    
+	 
+	    
+		System.out.println("Length of input String: " +input.length());
+		// input = new Scanner(System.in).nextLine();
+		}
+		
+		while(!HexCodec.isHex(input, 0));
+		
+		/*
+		 Input conversion from string to hexadecimal in order to ask from the user a friendlier input not a hexadecimal
+		 
+		String output = new String(DatatypeConverter.parseHexBinary(input));
+		*/
+		
+	
+		
+		
+		//System.out.println(output);
+		// inputBits will store the 64 bits of the input as a an int array of
+		// size 64. This program uses int arrays to store bits, for the sake
+		// of simplicity. The 16 hex digits are parsed into a long by
+		// HexCodec first and then unpacked, the first digit giving the
+		// first 4 bits.
+		int inputBits[] = toBits(HexCodec.parse(input, 0));
+		
+		// Similar process is followed for the 16 bit key
+		String key="";
+		do
+		{
+			
+			System.out.println("Enter the key as a 16 character hexadecimal value:");
+			 key = scan.nextLine();
+	   
+		System.out.println("Length of Key: " +key.length());
+		// input = new Scanner(System.in).nextLine();
+		}
+		
+		while(!HexCodec.isHex(key, 0));
+		
+		
+		int keyBits[] = toBits(HexCodec.parse(key, 0));
+		
+		// permute(int[] inputBits, int[] keyBits, boolean isDecrypt)
+		// method is used here. This allows encryption and decryption to be
+		// done in the same method, reducing code.
+		// The rounds are written to the console by a TextRoundTracer.
+		RoundObserver tracer = new TextRoundTracer(System.out);
+		System.out.println("\n+++ ENCRYPTION +++");
+		int outputBits[] = permute(inputBits, keyBits, false, RS, tracer);
+		System.out.println("\n+++ DECRYPTION +++");
+		permute(outputBits, keyBits, true, RS, tracer);
+	    }
+	
+	
+	static int[] permute(int[] inputBits, int[] keyBits, boolean isDecrypt,byte RS[][]) {
+		return permute(inputBits, keyBits, isDecrypt, RS, RoundObserver.NONE);
+	}
+	
+	// Same as above, reporting the state of every round to observer. The
+	// halves and keys are only packed for the observer when there is one.
+	static int[] permute(int[] inputBits, int[] keyBits, boolean isDecrypt,byte RS[][], RoundObserver observer) {
+		boolean tracing = observer != RoundObserver.NONE;
+		// Initial permutation step takes input bits and permutes into the
+		// newBits array
+		int newBits[] = new int[inputBits.length];
+		for(int i=0 ; i < inputBits.length ; i++) {
+			newBits[i] = inputBits[IP[i]-1];
+		}
+		
+		// 16 rounds will start here
+		// L and R arrays are created to store the Left and Right halves of the
+		// subkey respectively
+		int L[] = new int[32];
+		int R[] = new int[32];
+		int i;
+		
+		// Decryption requires the 16 subkeys to be used in the exact same
+		// process as encryption, with the only difference being that the keys
+		// are used in reverse order, i.e. last key is used first and so on.
+		// Hence all the subkeys are generated from the key before the first
+		// round, so decryption does not depend on an earlier encryption.
+		int subkey[][] = KS(keyBits);
+		
+		// Looping can start once L and R are initialized
+		System.arraycopy(newBits, 0, L, 0, 32);
+		System.arraycopy(newBits, 32, R, 0, 32);
+		if(tracing) {
+			observer.start(isDecrypt, (int) toLong(L), (int) toLong(R));
+		}
+		for(int n=0 ; n < 16 ; n++) {
+			// newR is the new R half generated by the Fiestel function. The
+			// subkeys are used in order for encryption and in reverse order
+			// for decryption.
+			int roundKey[] = isDecrypt ? subkey[15-n] : subkey[n];
+			int newR[] = fiestel(R, roundKey, RS);
+			// xor-ing the L and new R gives the new L value. new L is stored
+			// in R and new R is stored in L, thus exchanging R and L for the
+			// next round.
+			int newL[] = xor(L, newR);
+			L = R;
+			R = newL;
+			if(tracing) {
+				observer.round(n+1, toLong(roundKey), (int) toLong(L), (int) toLong(R));
+			}
+		}
+		
+		// R and L has the two halves of the output before applying the final
+		// permutation. This is called the "Preoutput".
+		int output[] = new int[64];
+		System.arraycopy(R, 0, output, 0, 32);
+		System.arraycopy(L, 0, output, 32, 32);
+		int finalOutput[] = new int[64];
+		// Applying FP table to the preoutput, we get the final output:
+		// Encryption => final output is ciphertext
+		// Decryption => final output is plaintext
+		for(i=0 ; i < 64 ; i++) {
+			finalOutput[i] = output[FP[i]-1];
+		}
+		
+		if(tracing) {
+			observer.finish(toLong(finalOutput));
+		}
+		return finalOutput;
+	}//end of permute function
+	
+	static int[][] KS(int[] key) {
+		// The KS (Key Structure) function generates the 16 round keys.
+		// C and D are 28 bits each and hold the two halves of the key after
+		// Permuted Choice 1. They are local, so the key schedule has no side
+		// effects and any number of threads may run it at once.
+		int C[] = new int[28];
+		int D[] = new int[28];
+		int i;
+		for(i=0 ; i < 28 ; i++) {
+			C[i] = key[PC1[i]-1];
+		}
+		for( ; i < 56 ; i++) {
+			D[i-28] = key[PC1[i]-1];
+		}
+		
+		int subkey[][] = new int[16][];
+		for(int round=0 ; round < 16 ; round++) {
+			// The rotation array is used to set how many rotations are to be
+			// done. leftShift() method is used for rotation (the rotation is
+			// basically a left shift operation, hence the name). The rotated
+			// halves become the old C and D for the next round.
+			int rotationTimes = (int) rotations[round];
+			C = leftShift(C, rotationTimes);
+			D = leftShift(D, rotationTimes);
+			// CnDn stores the combined C and D halves
+			int CnDn[] = new int[56];
+			System.arraycopy(C, 0, CnDn, 0, 28);
+			System.arraycopy(D, 0, CnDn, 28, 28);
+			// Kn stores the subkey, which is generated by applying the PC2
+			// table to CnDn
+			int Kn[] = new int[48];
+			for(i=0 ; i < Kn.length ; i++) {
+				Kn[i] = CnDn[PC2[i]-1];
+			}
+			subkey[round] = Kn;
+		}
+		return subkey;
+	}//end of KS function
+	
+	static int[] fiestel(int[] R, int[] roundKey, byte RS[][]) {
+		// Method to implement Fiestel function.
+		// First the 32 bits of the R array are expanded using E table.
+		int expandedR[] = new int[48];
+		for(int i=0 ; i < 48 ; i++) {
+			expandedR[i] = R[E[i]-1];
+		}
+		// We xor the expanded R and the generated round key
+		int temp[] = xor(expandedR, roundKey);
+		// The S boxes are then applied to this xor result and this is the
+		// output of the Fiestel function.
+		int output[] = sBlock(temp,RS);
+		return output;
+	}//end of fiestel
+	
+	private static int[] xor(int[] a, int[] b) {
+		// Simple xor function on two int arrays
+		int answer[] = new int[a.length];
+		for(int i=0 ; i < a.length ; i++) {
+			answer[i] = a[i]^b[i];
+		}
+		return answer;
+	}//end of xor function
+	
+	static int[] sBlock(int[] bits,byte RS[][]) {
+		// S-boxes are applied in this method.
+		int output[] = new int[32];
+		// We know that input will be of 32 bits, hence we will loop 32/4 = 8
+		// times (divided by 4 as we will take 4 bits of input at each
+		// iteration).
+		for(int i=0 ; i < 8 ; i++) {
+			// S-box requires a row and a column, which is found from the
+			// input bits. The first and 6th bit of the current iteration
+			// (i.e. bits 0 and 5) gives the row bits.
+			int row[] = new int [2];
+			row[0] = bits[6*i];
+			row[1] = bits[(6*i)+5];
+			String sRow = row[0] + "" + row[1];
+			// Similarly column bits are found, which are the 4 bits between
+			// the two row bits (i.e. bits 1,2,3,4)
+			int column[] = new int[4];
+			column[0] = bits[(6*i)+1];
+			column[1] = bits[(6*i)+2];
+			column[2] = bits[(6*i)+3];
+			column[3] = bits[(6*i)+4];
+			String sColumn = column[0] +""+ column[1] +""+ column[2] +""+ column[3];
+			// Converting binary into decimal value, to be given into the
+			// array as input
+			int iRow = Integer.parseInt(sRow, 2);
+			int iColumn = Integer.parseInt(sColumn, 2);
+			int x = RS[i][(iRow*16) + iColumn];
+			// We get decimal value of the S-box here, but we need to convert
+			// it into binary:
+			String s = Integer.toBinaryString(x);
+			// Padding is required since Java returns a decimal '5' as '111' in
+			// binary, when we require '0111'.
+			while(s.length() < 4) {
+				s = "0" + s;
+			}
+			// The binary bits are appended to the output
+			for(int j=0 ; j < 4 ; j++) {
+				output[(i*4) + j] = Integer.parseInt(s.charAt(j) + "");
+			}
+		}
+		// P table is applied to the output and this is the final output of one
+		// S-box round:
+		int finalOutput[] = new int[32];
+		for(int i=0 ; i < 32 ; i++) {
+			finalOutput[i] = output[P[i]-1];
+		}
+		return finalOutput;
+	}
+	
+	private static int[] leftShift(int[] bits, int n) {
+		// Left shifting takes place here, i.e. each bit is rotated to the left
+		// and the leftmost bit is stored at the rightmost bit. This is a left
+		// shift operation.
+		int answer[] = new int[bits.length];
+		System.arraycopy(bits, 0, answer, 0, bits.length);
+		for(int i=0 ; i < n ; i++) {
+			int temp = answer[0];
+			for(int j=0 ; j < bits.length-1 ; j++) {
+				answer[j] = answer[j+1];
+			}
+			answer[bits.length-1] = temp;
+		}
+		return answer;
+	}
+	
+	private static int[] toBits(long value) {
+		// Unpacks the 64 bits of value into an int array, the most
+		// significant bit first.
+		int bits[] = new int[64];
+		for(int i=0 ; i < 64 ; i++) {
+			bits[i] = (int) (value >>> (63 - i)) & 1;
+		}
+		return bits;
+	}
+	
+	private static long toLong(int[] bits) {
+		// Packs an int array of bits (at most 64) into a long, the first bit
+		// being the most significant one.
+		long value = 0;
+		for(int i=0 ; i < bits.length ; i++) {
+			value = (value << 1) | bits[i];
+		}
+		return value;
+	}
+	
+	private static void DDTprinter(int[] DDT)
+	{
+		for(int i =0; i<64; i++)
+		{
+			
+			for (int j=0; j<16; j++)
+				
+			{
+				System.out.print(" "+DDT[16*i+j]);
+			}
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,514 @@
+package des;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+// Search for the best n round differential characteristic of DES with a
+// given S-box set, with Matsui's branch and bound algorithm. The per S-box
+// L, R and e values only say how good one box is; this looks at the whole
+// round function, E, the S-boxes and P, over many rounds.
+//
+// A characteristic is the list of differences X1, X2, ... entering the
+// Fiestel function of every round and the differences Y1, Y2, ... that come
+// out of it. In a Fiestel cipher X(i+1) = X(i-1) xor Yi, so once X1 and X2
+// are chosen every round is fixed by the output difference picked for the
+// round before. The weight of a round is -log2 of its probability, the sum
+// over the active S-boxes of -log2(DDT entry / 64), and the weight of a
+// characteristic is the sum over its rounds.
+//
+// The best weights B1, B2, ... are found one after the other. While looking
+// for n rounds, a path that has used weight w after i rounds is dropped as
+// soon as w + B(n-i) can no longer beat the best n round characteristic
+// found so far, or the current estimate when none has been found yet. X1
+// and X2 are free: they are built S-box by S-box so their partial weight
+// prunes them too. The output of the first round only changes the plaintext
+// difference and that of the last round only the ciphertext difference, so
+// both simply take the most likely output. Within a round the active
+// S-boxes get their outputs one at a time, each fixing some bits of the next
+// input difference, and every chunk of that input is charged the cheapest
+// weight it can still reach, which cuts most paths before the round is
+// complete.
+//
+// The round 1 candidates are shared out to a ForkJoinPool. The workers
+// publish a better bound through an AtomicLong holding the bits of the
+// double, so every one of them prunes with the best weight any of them has
+// found. The outputs of an input difference are computed once, sorted by
+// weight, and kept in a cache shared by all the workers.
+final class DifferentialSearch {
+	// Weights are sums of doubles; two characteristics closer than this are
+	// considered equally good.
+	static final double EPSILON = 1e-9;
+	// How much the estimate is raised every time a search finds nothing
+	static final double STEP = 1.0;
+	// Input differences with more combinations of S-box outputs than this
+	// are enumerated on the fly instead of being cached.
+	static final int CACHED_OUTPUTS = 256;
+	static final int CACHE_SIZE = 1 << 14;
+
+	// For every S-box i and input difference a: the possible output
+	// differences, most likely first, and their weights.
+	private final int[][][] outputs = new int[8][64][];
+	private final double[][][] weights = new double[8][64][];
+	// sp[i][b]: the output difference b of S-box i moved to its place by P
+	private final int[][] sp = new int[8][16];
+	// cheapest[4096*c + 64*mask + a]: the lowest weight of S-box c over the
+	// inputs a xor u, u any value of the bits in mask
+	private final double[] cheapest = new double[8 * 64 * 64];
+	// FEEDS[i][c]: the bits of chunk c of the next input difference that P
+	// moves the output of S-box i into
+	private static final int[][] FEEDS = new int[8][8];
+
+	static {
+		for(int i=0 ; i < 8 ; i++) {
+			int bits = (int) BlockEngine.P.permute(0xFL << (28 - 4*i));
+			for(int c=0 ; c < 8 ; c++) {
+				FEEDS[i][c] = chunk(bits, c);
+			}
+		}
+	}
+	private final ForkJoinPool pool;
+	private final ConcurrentHashMap<Integer, Transitions> cache = new ConcurrentHashMap<>();
+	// best.get(n-1) is the best n round characteristic; the weight of one
+	// round is 0 (X1 = 0) and has no entry.
+	private final List<Characteristic> best = new ArrayList<>();
+
+	DifferentialSearch(byte[][] RS, ForkJoinPool pool) {
+		if(RS.length != 8) {
+			throw new IllegalArgumentException("expected 8 S-boxes, got " + RS.length);
+		}
+		this.pool = pool;
+		int[] ddt = new int[DifferentialTable.SIZE];
+		for(int i=0 ; i < 8 ; i++) {
+			DifferentialTable.compute(RS[i], ddt);
+			for(int a=0 ; a < 64 ; a++) {
+				Integer[] order = new Integer[16];
+				int count = 0;
+				for(int b=0 ; b < 16 ; b++) {
+					if(ddt[(a << 4) | b] != 0) {
+						order[count++] = b;
+					}
+				}
+				final int row = a << 4;
+				Arrays.sort(order, 0, count, (u, v) -> ddt[row | v] - ddt[row | u]);
+				outputs[i][a] = new int[count];
+				weights[i][a] = new double[count];
+				for(int k=0 ; k < count ; k++) {
+					outputs[i][a][k] = order[k];
+					weights[i][a][k] = -Math.log(ddt[row | order[k]] / 64.0) / Math.log(2);
+				}
+			}
+			for(int b=0 ; b < 16 ; b++) {
+				sp[i][b] = (int) BlockEngine.P.permute((long) b << (28 - 4*i));
+			}
+		}
+		for(int c=0 ; c < 8 ; c++) {
+			for(int mask=0 ; mask < 64 ; mask++) {
+				for(int a=0 ; a < 64 ; a++) {
+					double min = weights[c][a][0];
+					for(int u=mask ; u != 0 ; u = (u - 1) & mask) {
+						min = Math.min(min, weights[c][a ^ u][0]);
+					}
+					cheapest[(c << 12) | (mask << 6) | a] = min;
+				}
+			}
+		}
+		best.add(null);
+	}
+
+	// An n round characteristic: inputs[i] and outputs[i] are the input and
+	// output differences of the Fiestel function in round i+1.
+	static final class Characteristic {
+		final int[] inputs;
+		final int[] outputs;
+		final double[] weights;
+		final double weight;
+
+		Characteristic(int[] inputs, int[] outputs, double[] weights) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.weights = weights;
+			double sum = 0;
+			for(double w : weights) {
+				sum += w;
+			}
+			this.weight = sum;
+		}
+
+		public int rounds() {
+			return inputs.length;
+		}
+
+		public double probability() {
+			return Math.pow(2, -weight);
+		}
+
+		// The plaintext difference L0 || R0, after the initial permutation
+		public long inputDifference() {
+			int l = inputs.length > 1 ? inputs[1] ^ outputs[0] : 0;
+			return ((long) l << 32) | (inputs[0] & 0xFFFFFFFFL);
+		}
+
+		// The difference Ln || Rn after the last round, before the final swap
+		// and permutation
+		public long outputDifference() {
+			int n = inputs.length;
+			int previous = n > 1 ? inputs[n - 2] : (int) (inputDifference() >>> 32);
+			return ((long) inputs[n - 1] << 32) | ((previous ^ outputs[n - 1]) & 0xFFFFFFFFL);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder out = new StringBuilder();
+			out.append(String.format("%d rounds, weight %.4f (probability 2^-%.2f)%n", rounds(), weight, weight));
+			out.append(String.format("  in : %016x%n", inputDifference()));
+			for(int i=0 ; i < inputs.length ; i++) {
+				out.append(String.format("  %2d : %08x -> %08x  %.4f%n", i + 1, inputs[i], outputs[i], weights[i]));
+			}
+			out.append(String.format("  out: %016x%n", outputDifference()));
+			return out.toString();
+		}
+	}
+
+	// All the output differences of one input difference, most likely first
+	private static final class Transitions {
+		static final Transitions TOO_MANY = new Transitions(new int[0], new double[0]);
+
+		final int[] outputs;
+		final double[] weights;
+
+		Transitions(int[] outputs, double[] weights) {
+			this.outputs = outputs;
+			this.weights = weights;
+		}
+	}
+
+	// The 6 bit input of S-box i for the Fiestel input difference x; the
+	// same bits as E picks, bits 4i .. 4i+5 counting from 1 and wrapping
+	// around.
+	static int chunk(int x, int i) {
+		return Integer.rotateLeft(x, 5 + 4*i) & 0x3F;
+	}
+
+	// The weight of the most likely output of x
+	double minimumWeight(int x) {
+		double w = 0;
+		for(int i=0 ; i < 8 ; i++) {
+			w += weights[i][chunk(x, i)][0];
+		}
+		return w;
+	}
+
+	// The most likely output of x
+	int bestOutput(int x) {
+		int y = 0;
+		for(int i=0 ; i < 8 ; i++) {
+			y |= sp[i][outputs[i][chunk(x, i)][0]];
+		}
+		return y;
+	}
+
+	// Best weight of an n round characteristic, searching for it and all the
+	// shorter ones first if needed.
+	public double bound(int rounds) {
+		return rounds == 1 ? 0 : best(rounds).weight;
+	}
+
+	public synchronized Characteristic best(int rounds) {
+		if(rounds < 2) {
+			throw new IllegalArgumentException("rounds=" + rounds);
+		}
+		while(best.size() < rounds) {
+			best.add(search(best.size() + 1));
+		}
+		return best.get(rounds - 1);
+	}
+
+	private Characteristic search(int n) {
+		double[] B = new double[n];
+		for(int i=1 ; i < n ; i++) {
+			B[i] = bound(i);
+		}
+		// Splitting the n rounds in two gives a lower bound; start from it
+		// and raise the estimate until a characteristic is found.
+		double estimate = 0;
+		for(int i=1 ; i < n ; i++) {
+			estimate = Math.max(estimate, B[i] + B[n - i]);
+		}
+		while(true) {
+			Search search = new Search(n, B, estimate);
+			List<Integer> first = search.firstRound();
+			pool.invoke(new Task(search, first, 0, first.size()));
+			if(search.found != null) {
+				return search.found;
+			}
+			estimate += STEP;
+		}
+	}
+
+	// The round 1 candidates lo..hi, split until a task has one of them
+	private static final class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final List<Integer> first;
+		private final int lo;
+		private final int hi;
+
+		Task(Search search, List<Integer> first, int lo, int hi) {
+			this.search = search;
+			this.first = first;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo == 1) {
+				search.new Path().fromFirstRound(first.get(lo));
+			} else if(hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Task(search, first, lo, mid), new Task(search, first, mid, hi));
+			}
+		}
+	}
+
+	// One search for the best n round characteristic under a given estimate
+	private final class Search {
+		final int n;
+		final double[] B;
+		// Weight a characteristic must not exceed, as double bits; lowered
+		// every time a better one is found
+		final AtomicLong bound;
+		volatile Characteristic found;
+
+		Search(int n, double[] B, double estimate) {
+			this.n = n;
+			this.B = B;
+			this.bound = new AtomicLong(Double.doubleToLongBits(estimate + EPSILON));
+		}
+
+		double bound() {
+			return Double.longBitsToDouble(bound.get());
+		}
+
+		// Every X1 whose weight leaves room for the other n-1 rounds. Read
+		// backwards a characteristic is still one, with the same weight and
+		// the first and last rounds swapped, so only those with w1 <= wn
+		// have to be searched; as the rounds in between weigh at least
+		// B(n-2), that also caps w1 at half of what is left.
+		List<Integer> firstRound() {
+			double budget = bound() - B[n - 1];
+			if(n > 2) {
+				budget = Math.min(budget, (bound() - B[n - 2]) / 2);
+			}
+			List<Integer> first = new ArrayList<>();
+			inputs(0, 0, 0, 0, budget, first::add);
+			return first;
+		}
+
+		synchronized void record(Characteristic candidate) {
+			if(candidate.weight < bound()) {
+				found = candidate;
+				// Only a strictly better characteristic is worth looking for now
+				bound.set(Double.doubleToLongBits(candidate.weight - EPSILON));
+			}
+		}
+
+		// The state of one depth first walk, owned by one worker
+		final class Path {
+			final int[] x = new int[n];
+			final int[] y = new int[n];
+			final double[] w = new double[n];
+
+			void fromFirstRound(int x1) {
+				x[0] = x1;
+				w[0] = minimumWeight(x1);
+				y[0] = bestOutput(x1);
+				inputs(0, 0, 0, 0, bound() - w[0] - B[n - 2], x2 -> {
+					if(x1 != 0 || x2 != 0) {
+						x[1] = x2;
+						round(1, w[0]);
+					}
+				});
+			}
+
+			// Round r+1 (r counted from 0) once its input difference x[r] is
+			// known, with total the weight of the rounds before it
+			private void round(int r, double total) {
+				int xr = x[r];
+				if(r == n - 1) {
+					w[r] = minimumWeight(xr);
+					if(total + w[r] <= bound()) {
+						y[r] = bestOutput(xr);
+						record(new Characteristic(x.clone(), y.clone(), w.clone()));
+					}
+					return;
+				}
+				int previous = x[r - 1];
+				// What the rounds after the next one weigh at least
+				double rest = B[n - 2 - r];
+				Transitions transitions = transitions(xr);
+				if(transitions != Transitions.TOO_MANY) {
+					for(int k=0 ; k < transitions.outputs.length ; k++) {
+						double weight = transitions.weights[k];
+						if(total + weight + rest > bound()) {
+							break;
+						}
+						int next = previous ^ transitions.outputs[k];
+						if(total + weight + minimumWeight(next) + rest <= bound()) {
+							y[r] = transitions.outputs[k];
+							w[r] = weight;
+							x[r + 1] = next;
+							round(r + 1, total + weight);
+						}
+					}
+				} else {
+					// pending[8*i + c]: the bits of chunk c of the next input
+					// that the active S-boxes from i on can still change
+					int[] pending = new int[72];
+					for(int i=7 ; i >= 0 ; i--) {
+						boolean isActive = chunk(xr, i) != 0;
+						for(int c=0 ; c < 8 ; c++) {
+							pending[8*i + c] = pending[8*(i+1) + c] | (isActive ? FEEDS[i][c] : 0);
+						}
+					}
+					outputs(r, xr, previous, pending, 0, 0, 0, total);
+				}
+			}
+
+			// Gives the active S-boxes of round r+1 their outputs one after
+			// the other. Each output fixes more bits of the next input, and
+			// every chunk of it costs at least its cheapest value among those
+			// the S-boxes still to come can reach.
+			private void outputs(int r, int xr, int previous, int[] pending, int i, int yr, double weight, double total) {
+				while(i < 8 && chunk(xr, i) == 0) {
+					i++;
+				}
+				if(i == 8) {
+					y[r] = yr;
+					w[r] = weight;
+					x[r + 1] = previous ^ yr;
+					round(r + 1, total + weight);
+					return;
+				}
+				double rest = B[n - 2 - r];
+				int a = chunk(xr, i);
+				int[] out = outputs[i][a];
+				double[] ws = weights[i][a];
+				for(int k=0 ; k < out.length ; k++) {
+					if(total + weight + ws[k] + rest > bound()) {
+						break;
+					}
+					int y = yr | sp[i][out[k]];
+					int next = previous ^ y;
+					double reachable = 0;
+					for(int c=0, p=8*(i+1) ; c < 8 ; c++, p++) {
+						reachable += cheapest[(c << 12) | (pending[p] << 6) | chunk(next, c)];
+					}
+					if(total + weight + ws[k] + reachable + rest <= bound()) {
+						outputs(r, xr, previous, pending, i + 1, y, weight + ws[k], total);
+					}
+				}
+			}
+		}
+	}
+
+	// Builds the free input differences S-box by S-box, each chunk costing
+	// the weight of its most likely output, and gives every one whose weight
+	// stays within budget to found. Chunk 0 is any 6 bits, chunks 1 to 6
+	// share their first 2 bits with the chunk before them and chunk 7 also
+	// shares its last 2 bits with chunk 0.
+	private void inputs(int i, int x, int a0, int previous, double budget, IntConsumer found) {
+		if(i == 8) {
+			found.accept(x);
+			return;
+		}
+		int count = i == 0 ? 64 : i == 7 ? 4 : 16;
+		for(int v=0 ; v < count ; v++) {
+			int a;
+			int bits;
+			if(i == 0) {
+				a = v;
+				bits = ((v >>> 5) & 1) | ((v & 0x1F) << 27);
+			} else if(i == 7) {
+				a = ((previous & 3) << 4) | (v << 2) | (a0 >>> 4);
+				bits = v << 1;
+			} else {
+				a = ((previous & 3) << 4) | v;
+				bits = v << (27 - 4*i);
+			}
+			double w = weights[i][a][0];
+			if(w <= budget) {
+				inputs(i + 1, x | bits, i == 0 ? a : a0, a, budget - w, found);
+			}
+		}
+	}
+
+	private Transitions transitions(int x) {
+		Transitions cached = cache.get(x);
+		if(cached != null) {
+			return cached;
+		}
+		long combinations = 1;
+		for(int i=0 ; i < 8 ; i++) {
+			combinations *= outputs[i][chunk(x, i)].length;
+		}
+		Transitions transitions = Transitions.TOO_MANY;
+		if(combinations <= CACHED_OUTPUTS) {
+			int[] ys = new int[(int) combinations];
+			double[] ws = new double[(int) combinations];
+			expand(x, 0, 0, 0, new int[1], ys, ws);
+			// Sort by weight
+			Integer[] order = new Integer[ys.length];
+			for(int k=0 ; k < order.length ; k++) {
+				order[k] = k;
+			}
+			Arrays.sort(order, (u, v) -> Double.compare(ws[u], ws[v]));
+			int[] sortedOutputs = new int[ys.length];
+			double[] sortedWeights = new double[ys.length];
+			for(int k=0 ; k < order.length ; k++) {
+				sortedOutputs[k] = ys[order[k]];
+				sortedWeights[k] = ws[order[k]];
+			}
+			transitions = new Transitions(sortedOutputs, sortedWeights);
+		}
+		if(cache.size() < CACHE_SIZE) {
+			cache.putIfAbsent(x, transitions);
+		}
+		return transitions;
+	}
+
+	private void expand(int x, int i, int y, double weight, int[] count, int[] ys, double[] ws) {
+		if(i == 8) {
+			ys[count[0]] = y;
+			ws[count[0]] = weight;
+			count[0]++;
+			return;
+		}
+		int a = chunk(x, i);
+		for(int k=0 ; k < outputs[i][a].length ; k++) {
+			expand(x, i + 1, y | sp[i][outputs[i][a][k]], weight + weights[i][a][k], count, ys, ws);
+		}
+	}
+
+	// Usage: DifferentialSearch [rounds] [standard|random] [seed]
+	// Prints the best characteristic for 2 up to the given number of rounds.
+	public static void main(String[] args) {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		String sboxes = args.length > 1 ? args[1] : "standard";
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		DifferentialSearch search = new DifferentialSearch(BatchCli.sboxes(sboxes, seed), ForkJoinPool.commonPool());
+		long start = System.nanoTime();
+		for(int n=2 ; n <= rounds ; n++) {
+			Characteristic characteristic = search.best(n);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%n%s(%.1f s)%n", characteristic, seconds);
+		}
+	}
+}
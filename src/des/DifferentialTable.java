@@ -0,0 +1,104 @@
+package des;
+
+import java.util.Arrays;
+
+// Difference distribution table (DDT) of a 6x4 S-box and the L, R and e
+// values derived from it, the measure of strength against differential
+// cryptanalysis used by RecommendedSboxesE and main. Everything works on int
+// indices with bit operations.
+//
+// The table is flat: entry ddt[16*dx + dy] counts the inputs x for which
+// S(x) xor S(x xor dx) = dy. S-boxes are given as 64 entries in the row and
+// column layout of DES.S, an input x being looked up at Sboxes.index(x).
+final class DifferentialTable {
+	// An S-box takes a group of n = 6 bits and gives an output of 4 bits
+	static final int INPUTS = 64;
+	static final int OUTPUTS = 16;
+	static final int SIZE = INPUTS * OUTPUTS;
+
+	private static final int[] INDEX = new int[INPUTS];
+
+	static {
+		for(int x=0 ; x < INPUTS ; x++) {
+			INDEX[x] = Sboxes.index(x);
+		}
+	}
+
+	private DifferentialTable() {
+	}
+
+	public static int[] compute(byte[] sbox) {
+		int[] ddt = new int[SIZE];
+		compute(sbox, ddt);
+		return ddt;
+	}
+
+	// Fills ddt (SIZE entries) with the table of sbox. The pairs (x, x^dx)
+	// and (x^dx, x) land on the same entry, so only the pairs where x has a
+	// 0 at the highest bit of dx are visited and counted twice.
+	public static void compute(byte[] sbox, int[] ddt) {
+		long start = Metrics.start();
+		Events.DdtComputation event = new Events.DdtComputation();
+		event.begin();
+		int[] s = new int[INPUTS];
+		for(int x=0 ; x < INPUTS ; x++) {
+			s[x] = sbox[INDEX[x]] & 0xF;
+		}
+		Arrays.fill(ddt, 0, SIZE, 0);
+		ddt[0] = INPUTS;
+		for(int dx=1 ; dx < INPUTS ; dx++) {
+			int high = Integer.highestOneBit(dx);
+			int row = dx << 4;
+			for(int x=0 ; x < INPUTS ; x++) {
+				if((x & high) == 0) {
+					ddt[row | (s[x] ^ s[x ^ dx])] += 2;
+				}
+			}
+		}
+		event.commit();
+		Metrics.DDT_NANOS.recordSince(start);
+	}
+
+	// L: the biggest entry of the table outside the row of dx = 0, which is
+	// also the differential uniformity of the S-box
+	public static int l(int[] ddt) {
+		int L = 0;
+		for(int i=OUTPUTS ; i < SIZE ; i++) {
+			if(ddt[i] > L) {
+				L = ddt[i];
+			}
+		}
+		return L;
+	}
+
+	// R: the non-zero entries of the dy = 0 column aside from the (0,0)
+	// element
+	public static int r(int[] ddt) {
+		int R = 0;
+		for(int dx=1 ; dx < INPUTS ; dx++) {
+			if(ddt[dx << 4] != 0) {
+				R++;
+			}
+		}
+		return R;
+	}
+
+	// e = (1 - L/2^n) * (1 - R/2^n); the closer to 1, the stronger the S-box
+	public static double e(int L, int R) {
+		return (1 - L / (double) INPUTS) * (1 - R / (double) INPUTS);
+	}
+
+	// Differential branch number: the smallest wt(dx) + wt(dy) over the
+	// non-zero entries with dx != 0, i.e. the fewest input and output bits
+	// that change together. The DES design criterion that one changed input
+	// bit changes at least two output bits asks for 3.
+	public static int branchNumber(int[] ddt) {
+		int branch = Integer.MAX_VALUE;
+		for(int i=OUTPUTS ; i < SIZE ; i++) {
+			if(ddt[i] != 0) {
+				branch = Math.min(branch, Integer.bitCount(i >>> 4) + Integer.bitCount(i & 0xF));
+			}
+		}
+		return branch;
+	}
+}
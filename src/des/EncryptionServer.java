@@ -0,0 +1,465 @@
+package des;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local encryption service: one selector thread accepts connections, reads
+// requests and writes replies without blocking, and a pool of workers runs
+// the blocks through the engine.
+//
+// The protocol is binary and big endian. Every message is a frame, an int
+// with the number of bytes that follow and then those bytes. A request is
+//
+//   int id, byte op (ENCRYPT or DECRYPT), byte S-box set, long key,
+//   int count, count blocks of 8 bytes
+//
+// and its reply is int id, byte status (OK or ERROR) and then either the
+// count transformed blocks or a UTF-8 error message. The S-box sets are
+// numbered in the order given to the server, 0 usually being DES.S.
+//
+// Clients may pipeline: send many requests without waiting, on one or
+// more connections. The replies of a connection always come back in the
+// order of its requests. The selector thread gathers the requests of all
+// connections that arrive in one round, up to BATCH_BLOCKS blocks, into
+// a single task for the workers, so a burst of small requests costs one
+// hand-off instead of one per request. The blocks are copied once, from
+// the read buffer into the reply, and transformed there in place; the key
+// schedules come from a CipherCache. A connection with MAX_PENDING
+// requests in flight is not read from until some replies are written. A
+// client that shuts down its output still gets every reply before the
+// server closes the connection, and a request the worker fails on gets an
+// ERROR reply instead of holding up the ones behind it.
+final class EncryptionServer implements Closeable {
+	static final byte ENCRYPT = 0;
+	static final byte DECRYPT = 1;
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+	// id, op, S-box set, key and count
+	static final int REQUEST_HEADER = 18;
+	// id and status
+	static final int REPLY_HEADER = 5;
+	static final int MAX_BLOCKS = 1 << 16;
+	static final int BATCH_BLOCKS = 1 << 14;
+	static final int MAX_PENDING = 1 << 10;
+	private static final int READ_BUFFER = 1 << 16;
+
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final ExecutorService workers;
+	private final List<SboxSet> sboxes;
+	private final CipherCache ciphers;
+	// Connections with replies that workers finished since the last round
+	private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder blocks = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	// Batches handed to the workers and not finished yet
+	private final AtomicInteger queued = new AtomicInteger();
+	private volatile boolean isClosed;
+
+	// A request and, once done, its reply: the frame read from the client
+	// is rewritten in place into the reply frame, or replaced by an error
+	// frame if the worker fails.
+	private static final class Request {
+		final Connection connection;
+		final int id;
+		ByteBuffer reply;
+		final byte op;
+		final int sboxes;
+		final long key;
+		final int count;
+		// Written after reply, so the selector thread sees the final reply
+		volatile boolean isDone;
+
+		Request(Connection connection, int id, ByteBuffer reply, byte op, int sboxes, long key, int count) {
+			this.connection = connection;
+			this.id = id;
+			this.reply = reply;
+			this.op = op;
+			this.sboxes = sboxes;
+			this.key = key;
+			this.count = count;
+		}
+	}
+
+	private static final class Connection {
+		final SocketChannel channel;
+		final SelectionKey key;
+		ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+		// Requests in arrival order; only the selector thread touches it
+		final ArrayDeque<Request> pending = new ArrayDeque<>();
+		// The reply being written, if it did not fit the socket at once
+		ByteBuffer out;
+		// The client shut down its side; the connection is closed once the
+		// replies to its requests are written
+		boolean isEnded;
+
+		Connection(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+	}
+
+	// Listens on address (port 0 for any free port) and serves the given
+	// S-box sets with the given number of worker threads.
+	EncryptionServer(InetSocketAddress address, List<SboxSet> sboxes, int workers, CipherCache ciphers) throws IOException {
+		if(sboxes.isEmpty() || sboxes.size() > 256 || workers < 1) {
+			throw new IllegalArgumentException("S-box sets=" + sboxes.size() + ", workers=" + workers);
+		}
+		this.sboxes = new ArrayList<>(sboxes);
+		this.ciphers = ciphers;
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(address);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		this.workers = Executors.newFixedThreadPool(workers);
+	}
+
+	public int port() {
+		return server.socket().getLocalPort();
+	}
+
+	public long requests() {
+		return requests.sum();
+	}
+
+	public long blocks() {
+		return blocks.sum();
+	}
+
+	public long batches() {
+		return batches.sum();
+	}
+
+	// Serves until close() is called.
+	public void run() throws IOException {
+		List<Request> batch = new ArrayList<>();
+		int[] batchBlocks = new int[1];
+		while(!isClosed) {
+			selector.select();
+			Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+			while(selected.hasNext()) {
+				SelectionKey key = selected.next();
+				selected.remove();
+				if(!key.isValid()) {
+					continue;
+				}
+				try {
+					if(key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection connection = (Connection) key.attachment();
+					if(key.isReadable()) {
+						read(connection, batch, batchBlocks);
+					}
+					if(key.isValid() && key.isWritable()) {
+						write(connection);
+					}
+				} catch(IOException e) {
+					// The client went away; its requests in flight are dropped
+					close((Connection) key.attachment());
+				}
+			}
+			submit(batch, batchBlocks);
+			Connection connection;
+			while((connection = ready.poll()) != null) {
+				try {
+					write(connection);
+				} catch(IOException e) {
+					close(connection);
+				}
+			}
+		}
+		for(SelectionKey key : selector.keys()) {
+			key.channel().close();
+		}
+		selector.close();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if(channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		key.attach(new Connection(channel, key));
+	}
+
+	private void close(Connection connection) {
+		if(connection == null) {
+			return;
+		}
+		connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch(IOException e) {
+			// closing anyway
+		}
+		Metrics.SERVER_PENDING.add(-connection.pending.size());
+		connection.pending.clear();
+	}
+
+	// Reads what the socket has and turns every complete frame into a
+	// request of the batch.
+	private void read(Connection connection, List<Request> batch, int[] batchBlocks) throws IOException {
+		if(connection.channel.read(connection.in) < 0) {
+			// A client may half-close after pipelining its last requests;
+			// they are still answered. An incomplete frame is dropped.
+			connection.isEnded = true;
+			connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+			write(connection);
+			return;
+		}
+		ByteBuffer in = connection.in;
+		in.flip();
+		ByteBuffer bigger = null;
+		while(in.remaining() >= 4) {
+			int length = in.getInt(in.position());
+			if(length < REQUEST_HEADER || length > REQUEST_HEADER + 8 * MAX_BLOCKS) {
+				throw new IOException("bad frame length " + length);
+			}
+			if(in.remaining() < 4 + length) {
+				if(in.capacity() < 4 + length) {
+					// Make room for the whole frame
+					bigger = ByteBuffer.allocate(4 + length);
+				}
+				break;
+			}
+			int start = in.position() + 4;
+			int id = in.getInt(start);
+			byte op = in.get(start + 4);
+			int set = in.get(start + 5) & 0xFF;
+			long key = in.getLong(start + 6);
+			int count = in.getInt(start + 14);
+			in.position(start + length);
+			if(count < 0 || count > MAX_BLOCKS || length != REQUEST_HEADER + 8 * count) {
+				throw new IOException("frame of " + length + " bytes for " + count + " blocks");
+			}
+			Request request;
+			if(op != ENCRYPT && op != DECRYPT) {
+				request = failed(connection, id, "unknown operation " + op);
+			} else if(set >= sboxes.size()) {
+				request = failed(connection, id, "unknown S-box set " + set);
+			} else {
+				ByteBuffer reply = ByteBuffer.allocate(4 + REPLY_HEADER + 8 * count);
+				reply.putInt(REPLY_HEADER + 8 * count).putInt(id).put(OK);
+				ByteBuffer payload = in.duplicate();
+				payload.limit(start + length).position(start + REQUEST_HEADER);
+				reply.put(payload).flip();
+				request = new Request(connection, id, reply, op, set, key, count);
+				batch.add(request);
+				batchBlocks[0] += count;
+				if(batchBlocks[0] >= BATCH_BLOCKS) {
+					submit(batch, batchBlocks);
+				}
+			}
+			connection.pending.add(request);
+			requests.increment();
+			Metrics.SERVER_PENDING.add(1);
+		}
+		if(bigger != null) {
+			connection.in = bigger.put(in);
+		} else {
+			in.compact();
+		}
+		// Replies to bad requests are ready at once
+		write(connection);
+		if(connection.pending.size() >= MAX_PENDING) {
+			// Let the workers and the client catch up
+			connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+		}
+	}
+
+	private static Request failed(Connection connection, int id, String message) {
+		Request request = new Request(connection, id, error(id, message), ENCRYPT, 0, 0, 0);
+		request.isDone = true;
+		return request;
+	}
+
+	private static ByteBuffer error(int id, String message) {
+		byte[] text = message.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer reply = ByteBuffer.allocate(4 + REPLY_HEADER + text.length);
+		reply.putInt(REPLY_HEADER + text.length).putInt(id).put(ERROR).put(text).flip();
+		return reply;
+	}
+
+	private void submit(List<Request> batch, int[] batchBlocks) {
+		if(batch.isEmpty()) {
+			return;
+		}
+		List<Request> task = new ArrayList<>(batch);
+		batch.clear();
+		batchBlocks[0] = 0;
+		batches.increment();
+		int queueDepth = queued.getAndIncrement();
+		Metrics.SERVER_TASKS.add(1);
+		workers.execute(() -> process(task, queueDepth));
+	}
+
+	// Runs on a worker: transforms the blocks of every request of the batch
+	// and hands the connections back to the selector thread. queueDepth is
+	// the number of batches that were ahead of this one.
+	private void process(List<Request> task, int queueDepth) {
+		Events.CipherBatch event = new Events.CipherBatch();
+		event.begin();
+		long encrypted = 0;
+		long decrypted = 0;
+		Map<Connection, Boolean> connections = new IdentityHashMap<>();
+		try {
+			for(Request request : task) {
+				try {
+					CipherCache.Cipher cipher = ciphers.get(request.key, sboxes.get(request.sboxes));
+					ByteBuffer reply = request.reply;
+					int end = 4 + REPLY_HEADER + 8 * request.count;
+					if(request.op == ENCRYPT) {
+						for(int i=4 + REPLY_HEADER ; i < end ; i += 8) {
+							reply.putLong(i, cipher.encrypt(reply.getLong(i)));
+						}
+						encrypted += request.count;
+					} else {
+						for(int i=4 + REPLY_HEADER ; i < end ; i += 8) {
+							reply.putLong(i, cipher.decrypt(reply.getLong(i)));
+						}
+						decrypted += request.count;
+					}
+					blocks.add(request.count);
+				} catch(RuntimeException e) {
+					request.reply = error(request.id, "request failed: " + e);
+				}
+				request.isDone = true;
+				connections.put(request.connection, Boolean.TRUE);
+			}
+		} finally {
+			// Whatever went wrong, every request gets a reply, or its
+			// connection would wait for it forever
+			for(Request request : task) {
+				if(!request.isDone) {
+					request.reply = error(request.id, "request failed");
+					request.isDone = true;
+					connections.put(request.connection, Boolean.TRUE);
+				}
+			}
+			ready.addAll(connections.keySet());
+			selector.wakeup();
+			queued.decrementAndGet();
+			Metrics.SERVER_TASKS.add(-1);
+		}
+		Metrics.ENCRYPTED.add(encrypted);
+		Metrics.DECRYPTED.add(decrypted);
+		event.source = "server";
+		event.encrypted = encrypted;
+		event.decrypted = decrypted;
+		event.queueDepth = queueDepth;
+		event.commit();
+	}
+
+	// Writes the finished replies at the head of the connection's queue, in
+	// order, until one is not finished or the socket is full.
+	private void write(Connection connection) throws IOException {
+		if(!connection.key.isValid()) {
+			return;
+		}
+		while(true) {
+			if(connection.out == null) {
+				Request head = connection.pending.peek();
+				if(head == null || !head.isDone) {
+					break;
+				}
+				connection.pending.poll();
+				Metrics.SERVER_PENDING.add(-1);
+				connection.out = head.reply;
+			}
+			connection.channel.write(connection.out);
+			if(connection.out.hasRemaining()) {
+				connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+				return;
+			}
+			connection.out = null;
+		}
+		if(connection.isEnded) {
+			if(connection.pending.isEmpty()) {
+				close(connection);
+				return;
+			}
+			connection.key.interestOps(0);
+			return;
+		}
+		int interest = connection.key.interestOps() & ~SelectionKey.OP_WRITE;
+		if(connection.pending.size() < MAX_PENDING) {
+			interest |= SelectionKey.OP_READ;
+		}
+		connection.key.interestOps(interest);
+	}
+
+	@Override
+	public void close() throws IOException {
+		isClosed = true;
+		selector.wakeup();
+		workers.shutdownNow();
+		server.close();
+	}
+
+	// Usage: EncryptionServer [port] [workers] [cache] [random seed...]
+	// Serves on the loopback interface. Set 0 is DES.S; every seed adds a set
+	// of random S-boxes drawn from it as set 1, 2 and so on.
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int cacheSize = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 14;
+		List<SboxSet> sets = new ArrayList<>();
+		sets.add(SboxSet.of(DES.S));
+		for(int i=3 ; i < args.length ; i++) {
+			sets.add(SboxSet.of(BatchCli.sboxes("random", Long.parseLong(args[i]))));
+		}
+		CipherCache ciphers = new CipherCache(cacheSize, Math.min(cacheSize, 4 * workers), new SboxCache(sets.size()));
+		EncryptionServer server = new EncryptionServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), sets, workers, ciphers);
+		System.out.println("Serving " + sets.size() + " S-box sets on port " + server.port() + " with " + workers + " workers");
+		Thread reporter = new Thread(() -> {
+			try {
+				long lastBlocks = 0;
+				while(true) {
+					TimeUnit.SECONDS.sleep(5);
+					long done = server.blocks();
+					if(done != lastBlocks) {
+						System.out.printf("%d requests, %d blocks (%.0f per second), %d batches, %s%n",
+								server.requests(), done, (done - lastBlocks) / 5.0, server.batches(), ciphers);
+						if(Metrics.ENABLED) {
+							Metrics.report(System.out);
+						}
+						lastBlocks = done;
+					}
+				}
+			} catch(InterruptedException e) {
+				// server stopped
+			}
+		});
+		reporter.setDaemon(true);
+		reporter.start();
+		server.run();
+	}
+}
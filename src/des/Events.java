@@ -0,0 +1,150 @@
+package des;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JDK Flight Recorder events of the cipher and analysis code, recorded
+// with the rest of the JVM's events by -XX:StartFlightRecording or
+// jcmd <pid> JFR.start, without a profiler attached.
+//
+// The events are emitted per unit of work, never per block: a BatchCli
+// chunk, an EncryptionServer batch, 1024 S-boxes of an SboxSearch worker.
+// Without a recording begin() and commit() do nothing and the JIT removes
+// the event objects, so they cost nothing worth measuring. The only event
+// per S-box, DdtComputation, is off unless a recording's settings turn it
+// on, as it would otherwise flood the recording.
+final class Events {
+	private Events() {
+	}
+
+	@Name("des.CipherBatch")
+	@Label("Cipher Batch")
+	@Category({"DES", "Cipher"})
+	@Description("Blocks encrypted or decrypted as one unit of work")
+	@StackTrace(false)
+	static final class CipherBatch extends Event {
+		@Label("Source")
+		@Description("batch, server or mode")
+		String source;
+
+		@Label("Blocks Encrypted")
+		long encrypted;
+
+		@Label("Blocks Decrypted")
+		long decrypted;
+
+		@Label("Queue Depth")
+		@Description("Work queued behind this batch when it was handed over")
+		long queueDepth;
+	}
+
+	@Name("des.SboxScoring")
+	@Label("S-box Scoring")
+	@Category({"DES", "Analysis"})
+	@Description("S-boxes drawn and scored by an SboxSearch worker")
+	@StackTrace(false)
+	static final class SboxScoring extends Event {
+		@Label("S-boxes")
+		long sboxes;
+	}
+
+	@Name("des.DdtComputation")
+	@Label("DDT Computation")
+	@Category({"DES", "Analysis"})
+	@Description("One difference distribution table built by DifferentialTable")
+	@Enabled(false)
+	@StackTrace(false)
+	static final class DdtComputation extends Event {
+	}
+
+	@Name("des.Metrics")
+	@Label("DES Metrics")
+	@Category({"DES"})
+	@Description("Totals and rates of the Metrics registry, with -Ddes.metrics=true")
+	@Period("1 s")
+	@StackTrace(false)
+	static final class Snapshot extends Event {
+		@Label("Blocks Encrypted")
+		long encrypted;
+
+		@Label("Blocks Decrypted")
+		long decrypted;
+
+		@Label("Blocks per Second")
+		@Frequency
+		double blocksPerSecond;
+
+		@Label("Key Schedules Built")
+		long keySchedules;
+
+		@Label("S-boxes Scored")
+		long sboxesScored;
+
+		@Label("S-boxes per Second")
+		@Frequency
+		double sboxesPerSecond;
+
+		@Label("DDT Computations")
+		long ddtCount;
+
+		@Label("DDT Mean")
+		@Timespan(Timespan.NANOSECONDS)
+		long ddtMean;
+
+		@Label("DDT p99")
+		@Timespan(Timespan.NANOSECONDS)
+		long ddtP99;
+
+		@Label("Batch DDT Mean")
+		@Description("DDT part of scoring 16 S-boxes at once")
+		@Timespan(Timespan.NANOSECONDS)
+		long ddtBatchMean;
+
+		@Label("Batch Queue")
+		long batchQueue;
+
+		@Label("Server Pending Requests")
+		long serverPending;
+
+		@Label("Server Tasks")
+		long serverTasks;
+	}
+
+	// Called once, by Metrics when it is enabled
+	static void registerSnapshot() {
+		long[] last = new long[3];
+		last[0] = System.nanoTime();
+		FlightRecorder.addPeriodicEvent(Snapshot.class, () -> {
+			Snapshot event = new Snapshot();
+			long now = System.nanoTime();
+			double seconds = Math.max(1, now - last[0]) / 1e9;
+			event.encrypted = Metrics.ENCRYPTED.sum();
+			event.decrypted = Metrics.DECRYPTED.sum();
+			long blocks = event.encrypted + event.decrypted;
+			event.blocksPerSecond = (blocks - last[1]) / seconds;
+			event.keySchedules = Metrics.KEY_SCHEDULES.sum();
+			event.sboxesScored = Metrics.SBOXES_SCORED.sum();
+			event.sboxesPerSecond = (event.sboxesScored - last[2]) / seconds;
+			event.ddtCount = Metrics.DDT_NANOS.count();
+			event.ddtMean = (long) Metrics.DDT_NANOS.mean();
+			event.ddtP99 = Metrics.DDT_NANOS.percentile(99);
+			event.ddtBatchMean = (long) Metrics.DDT_BATCH_NANOS.mean();
+			event.batchQueue = Metrics.BATCH_QUEUE.value();
+			event.serverPending = Metrics.SERVER_PENDING.value();
+			event.serverTasks = Metrics.SERVER_TASKS.value();
+			event.commit();
+			last[0] = now;
+			last[1] = blocks;
+			last[2] = event.sboxesScored;
+		});
+	}
+}
@@ -0,0 +1,197 @@
+package des;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Encrypts and decrypts large files with DES in CTR or ECB mode, the two modes
+// where every block can be processed on its own. Both files are memory
+// mapped; the input is split into chunks that a ForkJoinPool encrypts in
+// parallel, each task reading its blocks from the mapped source and writing
+// them straight into the mapped destination, so the data never passes
+// through the heap.
+//
+// The output has the same layout as ModeCipher produces: ECB pads the last
+// block with PKCS#5, CTR output is exactly as long as the input and the
+// counter starts at the IV.
+final class FileEncryptor {
+	// Bytes handled by one task; a multiple of the block size
+	static final long CHUNK_SIZE = 8L << 20;
+
+	private final Mode mode;
+	private final BlockEngine engine;
+	private final KeySchedule key;
+	private final long iv;
+	private final ForkJoinPool pool;
+
+	FileEncryptor(Mode mode, BlockEngine engine, KeySchedule key, long iv, ForkJoinPool pool) {
+		if(mode != Mode.CTR && mode != Mode.ECB) {
+			throw new IllegalArgumentException(mode + " chains the blocks and cannot be run in parallel");
+		}
+		this.mode = mode;
+		this.engine = engine;
+		this.key = key;
+		this.iv = iv;
+		this.pool = pool;
+	}
+
+	// Returns the number of bytes written to target.
+	public long encrypt(Path source, Path target) throws IOException {
+		return run(source, target, false);
+	}
+
+	public long decrypt(Path source, Path target) throws IOException {
+		return run(source, target, true);
+	}
+
+	private long run(Path source, Path target, boolean isDecrypt) throws IOException {
+		try(RandomAccessFile in = new RandomAccessFile(source.toFile(), "r");
+				RandomAccessFile out = new RandomAccessFile(target.toFile(), "rw")) {
+			FileChannel input = in.getChannel();
+			FileChannel output = out.getChannel();
+			long length = input.size();
+			// bulk is the part made of whole blocks that goes through the
+			// parallel tasks; what follows it is handled here.
+			long bulk = length - length % 8;
+			long outputLength = length;
+			long lastBlock = 0;
+			if(mode == Mode.ECB) {
+				if(isDecrypt) {
+					if(length == 0 || length % 8 != 0) {
+						throw new IllegalStateException("ciphertext length is not a multiple of 8 bytes");
+					}
+					// The padding is in the last block, which decides how long
+					// the output is.
+					bulk = length - 8;
+					lastBlock = engine.decrypt(input.map(FileChannel.MapMode.READ_ONLY, bulk, 8).getLong(), key);
+					int pad = (int) lastBlock & 0xFF;
+					if(pad < 1 || pad > 8) {
+						throw new IllegalStateException("bad padding");
+					}
+					// Every padding byte must hold pad, as ModeCipher checks
+					for(int i=8-pad ; i < 8 ; i++) {
+						if(((lastBlock >>> (56 - 8*i)) & 0xFF) != pad) {
+							throw new IllegalStateException("bad padding");
+						}
+					}
+					outputLength = length - pad;
+				} else {
+					outputLength = bulk + 8;
+				}
+			}
+			out.setLength(outputLength);
+			pool.invoke(new Chunk(input, output, 0, bulk, isDecrypt));
+
+			int tail = (int) (length - bulk);
+			if(mode == Mode.CTR) {
+				if(tail > 0) {
+					MappedByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, bulk, tail);
+					MappedByteBuffer dst = output.map(FileChannel.MapMode.READ_WRITE, bulk, tail);
+					long keystream = engine.encrypt(iv + bulk / 8, key);
+					for(int i=0 ; i < tail ; i++) {
+						dst.put(i, (byte) (src.get(i) ^ (keystream >>> (56 - 8*i))));
+					}
+				}
+			} else if(isDecrypt) {
+				int remaining = (int) (outputLength - bulk);
+				if(remaining > 0) {
+					MappedByteBuffer dst = output.map(FileChannel.MapMode.READ_WRITE, bulk, remaining);
+					for(int i=0 ; i < remaining ; i++) {
+						dst.put(i, (byte) (lastBlock >>> (56 - 8*i)));
+					}
+				}
+			} else {
+				// PKCS#5 padding of the last, possibly empty, partial block
+				MappedByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, bulk, tail);
+				long block = 0;
+				for(int i=0 ; i < 8 ; i++) {
+					int b = i < tail ? src.get(i) & 0xFF : 8 - tail;
+					block = (block << 8) | b;
+				}
+				output.map(FileChannel.MapMode.READ_WRITE, bulk, 8).putLong(engine.encrypt(block, key));
+			}
+			return outputLength;
+		}
+	}
+
+	// Encrypts the whole blocks in [from, to), splitting the range until it
+	// is no larger than CHUNK_SIZE.
+	private final class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel input;
+		private final FileChannel output;
+		private final long from;
+		private final long to;
+		private final boolean isDecrypt;
+
+		Chunk(FileChannel input, FileChannel output, long from, long to, boolean isDecrypt) {
+			this.input = input;
+			this.output = output;
+			this.from = from;
+			this.to = to;
+			this.isDecrypt = isDecrypt;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > CHUNK_SIZE) {
+				long middle = from + ((to - from) / 16) * 8;
+				invokeAll(new Chunk(input, output, from, middle, isDecrypt),
+						new Chunk(input, output, middle, to, isDecrypt));
+				return;
+			}
+			int size = (int) (to - from);
+			if(size == 0) {
+				return;
+			}
+			try {
+				MappedByteBuffer src = input.map(FileChannel.MapMode.READ_ONLY, from, size);
+				MappedByteBuffer dst = output.map(FileChannel.MapMode.READ_WRITE, from, size);
+				if(mode == Mode.CTR) {
+					long counter = iv + from / 8;
+					for(int i=0 ; i < size ; i += 8) {
+						dst.putLong(i, src.getLong(i) ^ engine.encrypt(counter++, key));
+					}
+				} else if(isDecrypt) {
+					for(int i=0 ; i < size ; i += 8) {
+						dst.putLong(i, engine.decrypt(src.getLong(i), key));
+					}
+				} else {
+					for(int i=0 ; i < size ; i += 8) {
+						dst.putLong(i, engine.encrypt(src.getLong(i), key));
+					}
+				}
+			} catch(IOException e) {
+				throw new RuntimeException("cannot map bytes " + from + " to " + to, e);
+			}
+		}
+	}
+
+	// Usage: FileEncryptor encrypt|decrypt ctr|ecb <key> <iv> <source> <target>
+	// with the key and IV as 16 character hexadecimal values (the IV is
+	// ignored by ECB).
+	public static void main(String[] args) throws IOException {
+		if(args.length != 6) {
+			System.out.println("Usage: FileEncryptor encrypt|decrypt ctr|ecb <key> <iv> <source> <target>");
+			return;
+		}
+		boolean isDecrypt = args[0].equalsIgnoreCase("decrypt");
+		Mode mode = Mode.valueOf(args[1].toUpperCase());
+		KeySchedule key = KeySchedule.of(HexCodec.parse(args[2]));
+		long iv = HexCodec.parse(args[3]);
+		Path source = Paths.get(args[4]);
+		Path target = Paths.get(args[5]);
+
+		FileEncryptor encryptor = new FileEncryptor(mode, new BlockEngine(DES.S), key, iv, ForkJoinPool.commonPool());
+		long start = System.nanoTime();
+		long written = isDecrypt ? encryptor.decrypt(source, target) : encryptor.encrypt(source, target);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d bytes written in %.3f s (%.1f MB/s)%n", written, seconds, written / seconds / 1e6);
+	}
+}
@@ -0,0 +1,183 @@
+package des;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Conversion between 64 bit blocks or keys and their 16 hexadecimal digits,
+// the first digit holding the most significant 4 bits, for text held in a
+// CharSequence, a byte array (ASCII) or a ByteBuffer. Nothing is allocated:
+// digits are looked up in a 256 entry table whose invalid entries are
+// negative, so one check after the 16 lookups tells whether all were
+// digits. The batch variants convert arrays of blocks laid out one after
+// the other, with a fixed stride, so records such as "key,text\n" can be
+// read and written in place.
+//
+// Parsing throws IllegalArgumentException on anything but exactly 16
+// digits, a negative offset or fewer than 16 characters from the offset
+// included; formatting writes upper case digits.
+final class HexCodec {
+	static final int DIGITS = 16;
+
+	// VALUES[c]: the value of the hexadecimal digit c, or -1
+	private static final byte[] VALUES = new byte[256];
+	private static final byte[] UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LOWER = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	static {
+		Arrays.fill(VALUES, (byte) -1);
+		for(int v=0 ; v < 16 ; v++) {
+			VALUES[UPPER[v]] = (byte) v;
+			VALUES[LOWER[v]] = (byte) v;
+		}
+	}
+
+	private HexCodec() {
+	}
+
+	// Whether text has 16 hexadecimal digits from offset on
+	static boolean isHex(CharSequence text, int offset) {
+		if(offset < 0 || text.length() - offset < DIGITS) {
+			return false;
+		}
+		int check = 0;
+		for(int i=offset ; i < offset + DIGITS ; i++) {
+			char c = text.charAt(i);
+			check |= c > 0xFF ? -1 : VALUES[c];
+		}
+		return check >= 0;
+	}
+
+	// The whole of text, which must be exactly 16 digits
+	public static long parse(CharSequence text) {
+		if(text.length() != DIGITS) {
+			throw new IllegalArgumentException("expected 16 hexadecimal digits, got " + text.length());
+		}
+		return parse(text, 0);
+	}
+
+	public static long parse(CharSequence text, int offset) {
+		checkBounds(text.length(), offset);
+		long value = 0;
+		int check = 0;
+		for(int i=offset ; i < offset + DIGITS ; i++) {
+			char c = text.charAt(i);
+			int digit = c > 0xFF ? -1 : VALUES[c];
+			check |= digit;
+			value = (value << 4) | (digit & 0xF);
+		}
+		if(check < 0) {
+			throw invalid(text.subSequence(offset, offset + DIGITS));
+		}
+		return value;
+	}
+
+	public static long parse(byte[] text, int offset) {
+		checkBounds(text.length, offset);
+		long value = 0;
+		int check = 0;
+		for(int i=offset ; i < offset + DIGITS ; i++) {
+			int digit = VALUES[text[i] & 0xFF];
+			check |= digit;
+			value = (value << 4) | (digit & 0xF);
+		}
+		if(check < 0) {
+			throw invalid(new String(text, offset, DIGITS, StandardCharsets.ISO_8859_1));
+		}
+		return value;
+	}
+
+	// Reads the digits at index, without moving the position of the buffer
+	public static long parse(ByteBuffer text, int index) {
+		checkBounds(text.limit(), index);
+		long value = 0;
+		int check = 0;
+		for(int i=index ; i < index + DIGITS ; i++) {
+			int digit = VALUES[text.get(i) & 0xFF];
+			check |= digit;
+			value = (value << 4) | (digit & 0xF);
+		}
+		if(check < 0) {
+			StringBuilder digits = new StringBuilder(DIGITS);
+			for(int i=index ; i < index + DIGITS ; i++) {
+				digits.append((char) (text.get(i) & 0xFF));
+			}
+			throw invalid(digits);
+		}
+		return value;
+	}
+
+	// Parses count blocks, the first at text[offset] and each stride bytes
+	// after the one before, into blocks[from..from+count).
+	public static void parse(byte[] text, int offset, int stride, long[] blocks, int from, int count) {
+		for(int n=0 ; n < count ; n++, offset += stride) {
+			blocks[from + n] = parse(text, offset);
+		}
+	}
+
+	public static void parse(ByteBuffer text, int index, int stride, long[] blocks, int from, int count) {
+		for(int n=0 ; n < count ; n++, index += stride) {
+			blocks[from + n] = parse(text, index);
+		}
+	}
+
+	public static void format(long value, byte[] out, int offset) {
+		for(int i=offset + DIGITS - 1 ; i >= offset ; i--, value >>>= 4) {
+			out[i] = UPPER[(int) value & 0xF];
+		}
+	}
+
+	public static void format(long value, char[] out, int offset) {
+		for(int i=offset + DIGITS - 1 ; i >= offset ; i--, value >>>= 4) {
+			out[i] = (char) UPPER[(int) value & 0xF];
+		}
+	}
+
+	// Writes the digits at index, without moving the position of the buffer
+	public static void format(long value, ByteBuffer out, int index) {
+		for(int i=index + DIGITS - 1 ; i >= index ; i--, value >>>= 4) {
+			out.put(i, UPPER[(int) value & 0xF]);
+		}
+	}
+
+	// Formats blocks[from..from+count) to out, the first at out[offset] and
+	// each stride bytes after the one before; the bytes in between are left
+	// as they are.
+	public static void format(long[] blocks, int from, int count, byte[] out, int offset, int stride) {
+		for(int n=0 ; n < count ; n++, offset += stride) {
+			format(blocks[from + n], out, offset);
+		}
+	}
+
+	public static void format(long[] blocks, int from, int count, ByteBuffer out, int index, int stride) {
+		for(int n=0 ; n < count ; n++, index += stride) {
+			format(blocks[from + n], out, index);
+		}
+	}
+
+	// Appends the low 4*digits bits of value.
+	public static StringBuilder append(StringBuilder out, long value, int digits, boolean isUpperCase) {
+		byte[] table = isUpperCase ? UPPER : LOWER;
+		for(int shift=4*(digits-1) ; shift >= 0 ; shift -= 4) {
+			out.append((char) table[(int) (value >>> shift) & 0xF]);
+		}
+		return out;
+	}
+
+	public static StringBuilder append(StringBuilder out, long value) {
+		return append(out, value, DIGITS, true);
+	}
+
+	private static void checkBounds(int length, int offset) {
+		if(offset < 0) {
+			throw new IllegalArgumentException("offset=" + offset);
+		}
+		if(length - offset < DIGITS) {
+			throw new IllegalArgumentException("expected 16 hexadecimal digits, got " + Math.max(0, length - offset));
+		}
+	}
+
+	private static IllegalArgumentException invalid(CharSequence digits) {
+		return new IllegalArgumentException("'" + digits + "' is not a 16 digit hexadecimal value");
+	}
+}
@@ -0,0 +1,372 @@
+package des;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Differential key recovery on DES reduced to a few rounds (Biham and
+// Shamir's attack, for teaching): recovers bits of the last round key from
+// chosen plaintext pairs.
+//
+// The best characteristic over the first rounds-1 rounds fixes the input
+// difference of the pairs and, when it holds, the difference Lr-1 || Rr-1
+// entering the last round. After the last round Lr = Rr-1, so a right pair
+// must show that difference in Lr, and the output difference of the last
+// Fiestel function, Rr xor Lr-1, must be 0 for every S-box whose input
+// difference is 0 and possible for the others. Only pairs that pass are
+// kept. For each of them the S-boxes that are active in the last round
+// suggest the 6 bit pieces of the round key that turn the two known E(Lr)
+// inputs into the observed output difference, and every combination of
+// suggestions gets one vote. The right key piece gets a vote from every
+// right pair and wins once there are enough of them.
+//
+// Votes are counted jointly over up to MAX_BOXES active S-boxes, 2^24
+// counters at most, kept off the heap in a direct buffer so a big table
+// does not weigh on the garbage collector. Both collecting the pairs and
+// counting are parallel: every worker encrypts its own share of the pairs
+// and works out the key pieces they suggest, once per pair, and then every
+// worker owns a slice of the counters, by the key piece of the first S-box,
+// so they never write to the same counter.
+//
+// Everything is done after the initial permutation, like the experiments of
+// PairExperiment.
+final class KeyRecovery {
+	static final int MAX_BOXES = 4;
+	private static final BitPermutation P_INVERSE;
+
+	static {
+		byte[] inverse = new byte[32];
+		for(int i=0 ; i < 32 ; i++) {
+			inverse[DES.P[i] - 1] = (byte) (i + 1);
+		}
+		P_INVERSE = new BitPermutation(inverse, 32);
+	}
+
+	private final BlockEngine engine;
+	private final int rounds;
+	private final DifferentialSearch.Characteristic characteristic;
+	// s[i][x]: output of S-box i for the input x
+	private final int[][] s = new int[8][64];
+	private final int[][] ddt = new int[8][];
+	// Difference entering the last round, Lr-1 and Rr-1
+	private final int previousL;
+	private final int previousR;
+	// The active S-boxes of the last round whose key pieces are counted
+	private final int[] boxes;
+
+	KeyRecovery(byte[][] RS, int rounds, DifferentialSearch search) {
+		if(rounds < 3 || rounds > 16) {
+			throw new IllegalArgumentException("rounds=" + rounds);
+		}
+		this.engine = new BlockEngine(RS);
+		this.rounds = rounds;
+		this.characteristic = search.best(rounds - 1);
+		for(int i=0 ; i < 8 ; i++) {
+			for(int x=0 ; x < 64 ; x++) {
+				s[i][x] = RS[i][Sboxes.index(x)] & 0xF;
+			}
+			ddt[i] = DifferentialTable.compute(RS[i]);
+		}
+		long difference = characteristic.outputDifference();
+		previousL = (int) (difference >>> 32);
+		previousR = (int) difference;
+		int[] active = new int[8];
+		int count = 0;
+		for(int i=0 ; i < 8 && count < MAX_BOXES ; i++) {
+			if(DifferentialSearch.chunk(previousR, i) != 0) {
+				active[count++] = i;
+			}
+		}
+		if(count == 0) {
+			throw new IllegalStateException("the characteristic leaves no active S-box in the last round");
+		}
+		boxes = Arrays.copyOf(active, count);
+	}
+
+	public DifferentialSearch.Characteristic characteristic() {
+		return characteristic;
+	}
+
+	// The S-boxes whose key pieces are recovered, in the order they appear in
+	// a counter index
+	public int[] boxes() {
+		return boxes.clone();
+	}
+
+	public int counters() {
+		return 1 << (6 * boxes.length);
+	}
+
+	// The counter index of the pieces of the given round key
+	public int index(long roundKey) {
+		int index = 0;
+		for(int box : boxes) {
+			index = (index << 6) | (int) (roundKey >>> (42 - 6*box)) & 0x3F;
+		}
+		return index;
+	}
+
+	// Whether the outputs o1 and o2 of a pair can come from a right pair
+	boolean isCandidate(long o1, long o2) {
+		long difference = o1 ^ o2;
+		if((int) (difference >>> 32) != previousR) {
+			return false;
+		}
+		int y = (int) P_INVERSE.permute(((int) difference ^ previousL) & 0xFFFFFFFFL);
+		for(int i=0 ; i < 8 ; i++) {
+			int a = DifferentialSearch.chunk(previousR, i);
+			int b = (y >>> (28 - 4*i)) & 0xF;
+			if(ddt[i][(a << 4) | b] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Encrypts pairs chosen from the seed under key, rounds rounds, and
+	// returns the outputs of those that may be right pairs, two longs each.
+	public long[] collect(KeySchedule key, long pairs, long seed, int workers) throws InterruptedException {
+		long[] roundKeys = key.roundKeys();
+		long difference = characteristic.inputDifference();
+		SplittableRandom master = new SplittableRandom(seed);
+		List<Callable<long[]>> tasks = new ArrayList<>();
+		for(int w=0 ; w < workers ; w++) {
+			long share = pairs / workers + (w < pairs % workers ? 1 : 0);
+			SplittableRandom random = master.split();
+			tasks.add(() -> {
+				long[] kept = new long[64];
+				int size = 0;
+				for(long n=0 ; n < share ; n++) {
+					long block = random.nextLong();
+					long o1 = engine.rounds(block, roundKeys, rounds);
+					long o2 = engine.rounds(block ^ difference, roundKeys, rounds);
+					if(isCandidate(o1, o2)) {
+						if(size == kept.length) {
+							kept = Arrays.copyOf(kept, size * 2);
+						}
+						kept[size++] = o1;
+						kept[size++] = o2;
+					}
+				}
+				return Arrays.copyOf(kept, size);
+			});
+		}
+		List<long[]> results = invokeAll(tasks, workers);
+		int size = 0;
+		for(long[] kept : results) {
+			size += kept.length;
+		}
+		long[] all = new long[size];
+		size = 0;
+		for(long[] kept : results) {
+			System.arraycopy(kept, 0, all, size, kept.length);
+			size += kept.length;
+		}
+		return all;
+	}
+
+	// Counts the votes of the candidate pairs into a direct buffer of
+	// counters() ints, indexed like index(roundKey).
+	public ByteBuffer count(long[] candidates, int workers) throws InterruptedException {
+		int pairs = candidates.length / 2;
+		List<Callable<byte[]>> suggesting = new ArrayList<>();
+		for(int w=0 ; w < workers ; w++) {
+			int from = (int) ((long) pairs * w / workers);
+			int to = (int) ((long) pairs * (w + 1) / workers);
+			suggesting.add(() -> suggestions(candidates, from, to));
+		}
+		List<byte[]> suggestions = invokeAll(suggesting, workers);
+
+		ByteBuffer counters = ByteBuffer.allocateDirect(4 * counters()).order(ByteOrder.nativeOrder());
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int w=0 ; w < workers ; w++) {
+			// Worker w owns the counters whose first key piece is in lo..hi
+			int lo = 64 * w / workers;
+			int hi = 64 * (w + 1) / workers;
+			tasks.add(() -> {
+				int[] starts = new int[boxes.length];
+				for(byte[] list : suggestions) {
+					for(int at=0 ; at < list.length ; ) {
+						for(int j=0 ; j < boxes.length ; j++) {
+							starts[j] = at;
+							at += 1 + list[at];
+						}
+						vote(counters, list, starts, 0, 0, lo, hi);
+					}
+				}
+				return null;
+			});
+		}
+		invokeAll(tasks, workers);
+		return counters;
+	}
+
+	// The key pieces suggested by the pairs from..to of candidates, one pair
+	// after the other: for every counted S-box the number of pieces and then
+	// the pieces.
+	private byte[] suggestions(long[] candidates, int from, int to) {
+		int[][] suggested = new int[boxes.length][64];
+		int[] counts = new int[boxes.length];
+		byte[] list = new byte[1024];
+		int size = 0;
+		for(int p=from ; p < to ; p++) {
+			suggest(candidates[2*p], candidates[2*p + 1], suggested, counts);
+			for(int j=0 ; j < boxes.length ; j++) {
+				if(size + 1 + counts[j] > list.length) {
+					list = Arrays.copyOf(list, 2 * list.length);
+				}
+				list[size++] = (byte) counts[j];
+				for(int k=0 ; k < counts[j] ; k++) {
+					list[size++] = (byte) suggested[j][k];
+				}
+			}
+		}
+		return Arrays.copyOf(list, size);
+	}
+
+	// The key pieces every counted S-box accepts for the pair o1, o2
+	private void suggest(long o1, long o2, int[][] suggested, int[] suggestions) {
+		int y = (int) P_INVERSE.permute(((int) (o1 ^ o2) ^ previousL) & 0xFFFFFFFFL);
+		int l1 = (int) (o1 >>> 32);
+		int l2 = (int) (o2 >>> 32);
+		for(int j=0 ; j < boxes.length ; j++) {
+			int box = boxes[j];
+			int e1 = DifferentialSearch.chunk(l1, box);
+			int e2 = DifferentialSearch.chunk(l2, box);
+			int b = (y >>> (28 - 4*box)) & 0xF;
+			int count = 0;
+			for(int k=0 ; k < 64 ; k++) {
+				if((s[box][e1 ^ k] ^ s[box][e2 ^ k]) == b) {
+					suggested[j][count++] = k;
+				}
+			}
+			suggestions[j] = count;
+		}
+	}
+
+	// One vote for every combination of the pieces list suggests from
+	// starts[j] on, those of the first S-box limited to lo..hi
+	private void vote(ByteBuffer counters, byte[] list, int[] starts, int j, int index, int lo, int hi) {
+		if(j == boxes.length) {
+			int offset = index << 2;
+			counters.putInt(offset, counters.getInt(offset) + 1);
+			return;
+		}
+		int start = starts[j];
+		for(int k=1 ; k <= list[start] ; k++) {
+			int piece = list[start + k];
+			if(j > 0 || (piece >= lo && piece < hi)) {
+				vote(counters, list, starts, j + 1, (index << 6) | piece, lo, hi);
+			}
+		}
+	}
+
+	// The counter indices with the most votes, most first
+	public static int[] top(ByteBuffer counters, int k) {
+		int size = counters.capacity() / 4;
+		int n = Math.min(k, size);
+		int[] best = new int[n];
+		int[] votes = new int[n];
+		Arrays.fill(votes, -1);
+		for(int i=0 ; i < size ; i++) {
+			int count = counters.getInt(i << 2);
+			if(count <= votes[n - 1]) {
+				continue;
+			}
+			int j = n - 1;
+			while(j > 0 && votes[j - 1] < count) {
+				best[j] = best[j - 1];
+				votes[j] = votes[j - 1];
+				j--;
+			}
+			best[j] = i;
+			votes[j] = count;
+		}
+		return best;
+	}
+
+	private static <T> List<T> invokeAll(List<Callable<T>> tasks, int workers) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<T> results = new ArrayList<>();
+			for(Future<T> result : pool.invokeAll(tasks)) {
+				results.add(result.get());
+			}
+			return results;
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("attack worker failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Usage: KeyRecovery [rounds] [pairs] [standard|random] [seed] [workers]
+	// Attacks a key drawn from the seed and reports where the right pieces of
+	// the last round key ended up. The number of pairs has to be a few times
+	// 2^w for a characteristic of weight w, far more than the default for 8
+	// rounds of the standard boxes.
+	public static void main(String[] args) throws InterruptedException {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long pairs = args.length > 1 ? Long.parseLong(args[1]) : 1 << 20;
+		String sboxes = args.length > 2 ? args[2] : "standard";
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+		int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		byte[][] RS = BatchCli.sboxes(sboxes, seed);
+		KeyRecovery attack = new KeyRecovery(RS, rounds, new DifferentialSearch(RS, ForkJoinPool.commonPool()));
+		System.out.print("Characteristic over the first " + attack.characteristic());
+		StringBuilder names = new StringBuilder();
+		for(int box : attack.boxes) {
+			names.append(' ').append(box + 1);
+		}
+		System.out.println("Recovering the key pieces of S-boxes" + names + " of round " + rounds);
+
+		KeySchedule key = KeySchedule.of(new SplittableRandom(~seed).nextLong());
+		long start = System.nanoTime();
+		long[] candidates = attack.collect(key, pairs, seed, workers);
+		double collected = (System.nanoTime() - start) / 1e9;
+		ByteBuffer counters = attack.count(candidates, workers);
+		double counted = (System.nanoTime() - start) / 1e9 - collected;
+		System.out.printf("%d pairs, %d kept, collected in %.2f s, counted in %.2f s%n",
+				pairs, candidates.length / 2, collected, counted);
+
+		int right = attack.index(key.roundKey(rounds - 1));
+		int[] best = top(counters, 5);
+		for(int index : best) {
+			System.out.printf("%s: %d votes%s%n", pieces(index, attack.boxes.length), counters.getInt(index << 2),
+					index == right ? "  <- right key" : "");
+		}
+		int votes = counters.getInt(right << 2);
+		// Key pieces that differ from the right one by the input difference
+		// of their S-box always get the same votes, so ties are expected.
+		int rank = 1;
+		int ties = 0;
+		for(int i=0 ; i < attack.counters() ; i++) {
+			int count = counters.getInt(i << 2);
+			if(count > votes) {
+				rank++;
+			} else if(count == votes && i != right) {
+				ties++;
+			}
+		}
+		System.out.println("right key " + pieces(right, attack.boxes.length) + ": " + votes + " votes, rank " + rank
+				+ ", tied with " + ties + " others");
+	}
+
+	private static String pieces(int index, int boxes) {
+		StringBuilder out = new StringBuilder();
+		for(int j=boxes - 1 ; j >= 0 ; j--) {
+			out.append(String.format("%02x", (index >>> (6*j)) & 0x3F)).append(j > 0 ? " " : "");
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package des;
+
+// The 16 round keys of a DES key, derived once and packed as 48 bit longs.
+// A KeySchedule never changes after it has been built, so it can be shared
+// between threads and used to encrypt and decrypt in any order, unlike the
+// old KS which generated the subkeys as a side effect of encrypting.
+final class KeySchedule {
+	private static final BitPermutation PC1 = new BitPermutation(DES.PC1, 64);
+	private static final BitPermutation PC2 = new BitPermutation(DES.PC2, 56);
+
+	private final long key;
+	private final long[] roundKeys = new long[16];
+
+	private KeySchedule(long key) {
+		this.key = key;
+		// PC1 selects the 56 key bits, which are split into the 28 bit C and
+		// D halves. Each round rotates both halves to the left and PC2 picks
+		// the 48 bits of the round key.
+		long cd = PC1.permute(key);
+		int c = (int) (cd >>> 28) & 0xFFFFFFF;
+		int d = (int) cd & 0xFFFFFFF;
+		for(int n=0 ; n < 16 ; n++) {
+			c = rotate28(c, DES.rotations[n]);
+			d = rotate28(d, DES.rotations[n]);
+			roundKeys[n] = PC2.permute(((long) c << 28) | d);
+		}
+		Metrics.KEY_SCHEDULES.increment();
+	}
+
+	public static KeySchedule of(long key) {
+		return new KeySchedule(key);
+	}
+
+	public long key() {
+		return key;
+	}
+
+	// The round key used in the given round (0 to 15) when encrypting.
+	public long roundKey(int round) {
+		return roundKeys[round];
+	}
+
+	// The engine reads the round keys straight from this array; it is never
+	// handed out of the package and must not be modified.
+	long[] roundKeys() {
+		return roundKeys;
+	}
+
+	private static int rotate28(int half, int times) {
+		return ((half << times) | (half >>> (28 - times))) & 0xFFFFFFF;
+	}
+}
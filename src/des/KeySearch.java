@@ -0,0 +1,240 @@
+package des;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Known plaintext exhaustive key search over part of the key space, as a
+// benchmark of the whole engine, key setup included, and for teaching.
+//
+// DES keys have 56 effective bits; the lowest bit of every key byte is a
+// parity bit that PC1 drops. The search keeps the upper effective bits of a
+// base key and tries every value of the lower bits, so bits = 32 to 40 gives
+// the usual reduced key spaces.
+//
+// The bitsliced engine tests 64 consecutive keys in one pass: the 6 lowest
+// effective key bits vary across the lanes and the key schedule is a gather
+// from the key lanes, so the key setup costs one lookup per round key bit
+// for all 64 keys. The block engine, for comparison, builds a KeySchedule
+// for every key. Key ranges are split recursively on a ForkJoinPool, so idle
+// workers steal what is left of the others; the search stops everywhere as
+// soon as a key is found unless all the matches are asked for.
+final class KeySearch {
+	// Keys a task tests without splitting further
+	static final long LEAF_KEYS = 1 << 16;
+	// LANE_BITS[q]: lane pattern of bit q of the key number, for the 6 bits
+	// that differ between the 64 keys of a bitsliced batch
+	private static final long[] LANE_BITS = new long[6];
+
+	static {
+		for(int q=0 ; q < 6 ; q++) {
+			for(int t=0 ; t < 64 ; t++) {
+				if(((t >>> q) & 1) != 0) {
+					LANE_BITS[q] |= 1L << t;
+				}
+			}
+		}
+	}
+
+	private final long plaintext;
+	private final long ciphertext;
+	private final long base;
+	private final int bits;
+	private final boolean isBitsliced;
+	private final boolean stopAtFirst;
+	private final BlockEngine blockEngine;
+	private final BitslicedEngine bitslicedEngine;
+	private final AtomicBoolean stopped = new AtomicBoolean();
+	private final LongAdder tested = new LongAdder();
+	private final List<Long> matches = Collections.synchronizedList(new ArrayList<Long>());
+
+	// base is a 64 bit DES key whose effective bits above the lowest bits
+	// stay fixed.
+	KeySearch(byte[][] RS, long plaintext, long ciphertext, long base, int bits, boolean isBitsliced, boolean stopAtFirst) {
+		if(bits < 6 || bits > 56) {
+			throw new IllegalArgumentException("bits=" + bits);
+		}
+		this.plaintext = plaintext;
+		this.ciphertext = ciphertext;
+		this.base = effective(base) & ~((1L << bits) - 1);
+		this.bits = bits;
+		this.isBitsliced = isBitsliced;
+		this.stopAtFirst = stopAtFirst;
+		this.blockEngine = isBitsliced ? null : new BlockEngine(RS);
+		this.bitslicedEngine = isBitsliced ? new BitslicedEngine(RS) : null;
+	}
+
+	// The 56 effective bits of a key, the 7 upper bits of every byte
+	static long effective(long key) {
+		long value = 0;
+		for(int j=0 ; j < 8 ; j++) {
+			value = (value << 7) | ((key >>> (57 - 8*j)) & 0x7F);
+		}
+		return value;
+	}
+
+	// The key with the given effective bits and zero parity bits
+	static long key(long effective) {
+		long key = 0;
+		for(int j=0 ; j < 8 ; j++) {
+			key |= ((effective >>> (49 - 7*j)) & 0x7F) << (57 - 8*j);
+		}
+		return key;
+	}
+
+	// Keys tested so far, readable while the search runs
+	public long tested() {
+		return tested.sum();
+	}
+
+	public boolean isStopped() {
+		return stopped.get();
+	}
+
+	// Runs the search on pool and returns the keys found, parity bits 0.
+	public List<Long> run(ForkJoinPool pool) {
+		pool.invoke(new Range(0, 1L << bits));
+		List<Long> found = new ArrayList<>(matches);
+		Collections.sort(found);
+		return found;
+	}
+
+	// The key numbers lo..hi, relative to the base
+	private final class Range extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final long lo;
+		private final long hi;
+
+		Range(long lo, long hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if(hi - lo > LEAF_KEYS) {
+				long mid = (lo + hi) >>> 1;
+				invokeAll(new Range(lo, mid), new Range(mid, hi));
+			} else if(isBitsliced) {
+				searchBitsliced(lo, hi);
+			} else {
+				searchBlocks(lo, hi);
+			}
+		}
+	}
+
+	private void searchBlocks(long lo, long hi) {
+		for(long n=lo ; n < hi ; n += 64) {
+			if(stopped.get()) {
+				return;
+			}
+			long end = Math.min(hi, n + 64);
+			for(long m=n ; m < end ; m++) {
+				long candidate = key(base | m);
+				if(blockEngine.encrypt(plaintext, KeySchedule.of(candidate)) == ciphertext) {
+					found(candidate);
+				}
+			}
+			tested.add(end - n);
+		}
+	}
+
+	// lo and hi are multiples of 64
+	private void searchBitsliced(long lo, long hi) {
+		long[] keyLanes = new long[64];
+		long[] roundKeyLanes = new long[16 * 48];
+		long[] lanes = new long[64];
+		long[] plain = new long[64];
+		long[] expected = new long[64];
+		// Every block holds the plaintext, and should hold the ciphertext
+		for(int i=0 ; i < 64 ; i++) {
+			plain[i] = -((plaintext >>> (63 - i)) & 1);
+			expected[i] = -((ciphertext >>> (63 - i)) & 1);
+		}
+		for(long n=lo ; n < hi ; n += 64) {
+			if(stopped.get()) {
+				return;
+			}
+			long first = base | n;
+			// Key bit p (0 the most significant) is effective bit q of the
+			// key number, or a parity bit
+			for(int p=0 ; p < 64 ; p++) {
+				if((p & 7) == 7) {
+					keyLanes[p] = 0;
+					continue;
+				}
+				int q = 55 - (7*(p >>> 3) + (p & 7));
+				keyLanes[p] = q < 6 ? LANE_BITS[q] : -((first >>> q) & 1);
+			}
+			BitslicedEngine.roundKeyLanes(keyLanes, roundKeyLanes);
+			System.arraycopy(plain, 0, lanes, 0, 64);
+			bitslicedEngine.crypt(lanes, 0, roundKeyLanes, false);
+			long mismatch = 0;
+			for(int i=0 ; i < 64 ; i++) {
+				mismatch |= lanes[i] ^ expected[i];
+			}
+			long matching = ~mismatch;
+			while(matching != 0) {
+				int t = Long.numberOfTrailingZeros(matching);
+				found(key(first | t));
+				matching &= matching - 1;
+			}
+			tested.add(64);
+		}
+	}
+
+	private void found(long candidate) {
+		matches.add(candidate);
+		if(stopAtFirst) {
+			stopped.set(true);
+		}
+	}
+
+	// Usage: KeySearch [bits] [key] [plaintext] [bitsliced|block] [workers] [first|all]
+	// Encrypts the plaintext under the key, then searches the 2^bits keys that
+	// share the upper effective bits of the key for one that gives the same
+	// ciphertext.
+	public static void main(String[] args) throws InterruptedException {
+		int bits = args.length > 0 ? Integer.parseInt(args[0]) : 28;
+		long secret = args.length > 1 ? HexCodec.parse(args[1]) : 0x133457799BBCDFF1L;
+		long plaintext = args.length > 2 ? HexCodec.parse(args[2]) : 0x0123456789ABCDEFL;
+		boolean isBitsliced = args.length <= 3 || args[3].equals("bitsliced");
+		int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		boolean stopAtFirst = args.length <= 5 || args[5].equals("first");
+
+		long ciphertext = new BlockEngine(DES.S).encrypt(plaintext, KeySchedule.of(secret));
+		KeySearch search = new KeySearch(DES.S, plaintext, ciphertext, secret, bits, isBitsliced, stopAtFirst);
+		System.out.printf("Searching 2^%d keys for %016x -> %016x with the %s engine on %d threads%n",
+				bits, plaintext, ciphertext, isBitsliced ? "bitsliced" : "block", workers);
+		long start = System.nanoTime();
+		Thread reporter = new Thread(() -> {
+			try {
+				while(true) {
+					TimeUnit.SECONDS.sleep(1);
+					long done = search.tested();
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.out.printf("%d keys, %.0f per second%n", done, done / seconds);
+				}
+			} catch(InterruptedException e) {
+				// search finished
+			}
+		});
+		reporter.setDaemon(true);
+		reporter.start();
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		List<Long> found = search.run(pool);
+		pool.shutdown();
+		reporter.interrupt();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d keys tested in %.2f s (%.0f keys per second)%n", search.tested(), seconds, search.tested() / seconds);
+		for(long key : found) {
+			System.out.printf("key %016x%s%n", key, effective(key) == effective(secret) ? " (right key)" : "");
+		}
+	}
+}
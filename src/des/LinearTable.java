@@ -0,0 +1,85 @@
+package des;
+
+// Linear approximation table (LAT) of a 6x4 S-box and the measures of
+// strength against linear cryptanalysis derived from it, the counterpart of
+// DifferentialTable.
+//
+// Entry lat[16*a + b] is the number of inputs x for which the parity of
+// a & x equals the parity of b & S(x), minus 32; 0 means the approximation
+// holds exactly half of the time. For every output mask b the whole column
+// comes from one fast Walsh-Hadamard transform of (-1)^(b.S(x)), 6*64
+// additions, instead of counting all 64 input masks against all 64 inputs.
+final class LinearTable {
+	static final int INPUTS = 64;
+	static final int OUTPUTS = 16;
+	static final int SIZE = INPUTS * OUTPUTS;
+
+	private LinearTable() {
+	}
+
+	public static int[] compute(byte[] sbox) {
+		int[] lat = new int[SIZE];
+		compute(sbox, lat);
+		return lat;
+	}
+
+	// Fills lat (SIZE entries) with the table of sbox, given in the row and
+	// column layout of DES.S.
+	public static void compute(byte[] sbox, int[] lat) {
+		int[] s = new int[INPUTS];
+		int[] walsh = new int[INPUTS];
+		for(int x=0 ; x < INPUTS ; x++) {
+			s[x] = sbox[Sboxes.index(x)] & 0xF;
+		}
+		// The empty output mask agrees with a.x exactly when a = 0
+		for(int a=0 ; a < INPUTS ; a++) {
+			lat[a << 4] = a == 0 ? INPUTS / 2 : 0;
+		}
+		for(int b=1 ; b < OUTPUTS ; b++) {
+			for(int x=0 ; x < INPUTS ; x++) {
+				walsh[x] = (Integer.bitCount(b & s[x]) & 1) == 0 ? 1 : -1;
+			}
+			transform(walsh);
+			// walsh[a] = agreements - disagreements = 2 * lat
+			for(int a=0 ; a < INPUTS ; a++) {
+				lat[(a << 4) | b] = walsh[a] / 2;
+			}
+		}
+	}
+
+	// In place fast Walsh-Hadamard transform of the 64 values
+	static void transform(int[] f) {
+		for(int h=1 ; h < INPUTS ; h <<= 1) {
+			for(int i=0 ; i < INPUTS ; i += h << 1) {
+				for(int j=i ; j < i + h ; j++) {
+					int u = f[j];
+					int v = f[j + h];
+					f[j] = u + v;
+					f[j + h] = u - v;
+				}
+			}
+		}
+	}
+
+	// The biggest |lat| over the non-zero output masks
+	public static int maxEntry(int[] lat) {
+		int max = 0;
+		for(int a=0 ; a < INPUTS ; a++) {
+			for(int b=1 ; b < OUTPUTS ; b++) {
+				max = Math.max(max, Math.abs(lat[(a << 4) | b]));
+			}
+		}
+		return max;
+	}
+
+	// Nonlinearity: the distance from the closest affine function over all
+	// non-zero combinations of output bits, 2^(n-1) - max|lat|
+	public static int nonlinearity(int[] lat) {
+		return INPUTS / 2 - maxEntry(lat);
+	}
+
+	// Maximum linear bias |p - 1/2| of any approximation a.x = b.S(x)
+	public static double maxBias(int[] lat) {
+		return maxEntry(lat) / (double) INPUTS;
+	}
+}
@@ -0,0 +1,262 @@
+package des;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Load generator for EncryptionServer: opens a number of connections and
+// keeps up to depth requests in flight on each, for a fixed time, then
+// reports the throughput and the latency percentiles.
+//
+// Every connection has a writer thread that sends requests as fast as the
+// window allows and a reader thread that takes the replies, which come back
+// in order, measures how long each one took and checks some of them against
+// a local engine. Keys are drawn from a small pool, so the server's cipher
+// cache sees a realistic mix of repeated keys. The latencies are kept in
+// plain long arrays per connection and sorted once at the end.
+final class LoadClient {
+	// One request in VERIFY_EVERY is checked against the local engine
+	static final int VERIFY_EVERY = 64;
+
+	private final InetSocketAddress address;
+	private final int depth;
+	private final int blocks;
+	private final long[] keys;
+	private final int sboxes;
+	private final BlockEngine engine;
+
+	// engine is the local engine of the S-box set the requests name
+	LoadClient(InetSocketAddress address, int depth, int blocks, long[] keys, int sboxes, BlockEngine engine) {
+		if(depth < 1 || blocks < 0 || blocks > EncryptionServer.MAX_BLOCKS || keys.length == 0) {
+			throw new IllegalArgumentException("depth=" + depth + ", blocks=" + blocks + ", keys=" + keys.length);
+		}
+		this.address = address;
+		this.depth = depth;
+		this.blocks = blocks;
+		this.keys = keys;
+		this.sboxes = sboxes;
+		this.engine = engine;
+	}
+
+	// What one connection measured
+	static final class Result {
+		final long[] latencies;
+		final int requests;
+		final long verified;
+		final long errors;
+
+		Result(long[] latencies, int requests, long verified, long errors) {
+			this.latencies = latencies;
+			this.requests = requests;
+			this.verified = verified;
+			this.errors = errors;
+		}
+	}
+
+	// Runs the given number of connections for the given time.
+	public List<Result> run(int connections, long nanos, long seed) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(2 * connections);
+		try {
+			SplittableRandom master = new SplittableRandom(seed);
+			List<Future<Result>> results = new ArrayList<>();
+			long deadline = System.nanoTime() + nanos;
+			for(int c=0 ; c < connections ; c++) {
+				SocketChannel channel = SocketChannel.open(address);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				SplittableRandom random = master.split();
+				results.add(connect(pool, channel, random, deadline));
+			}
+			List<Result> done = new ArrayList<>();
+			for(Future<Result> result : results) {
+				done.add(result.get());
+			}
+			return done;
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("load connection failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private Future<Result> connect(ExecutorService pool, SocketChannel channel, SplittableRandom random, long deadline) {
+		Semaphore window = new Semaphore(depth);
+		// Send time and key of the requests in flight, by id modulo depth
+		AtomicLongArray sent = new AtomicLongArray(depth);
+		AtomicLongArray sentKeys = new AtomicLongArray(depth);
+		long[] first = new long[depth];
+		int[] count = new int[1];
+		Future<?> writer = pool.submit(() -> {
+			ByteBuffer frame = ByteBuffer.allocate(4 + EncryptionServer.REQUEST_HEADER + 8 * blocks);
+			int id = 0;
+			try {
+				while(System.nanoTime() < deadline) {
+					window.acquire();
+					long key = keys[random.nextInt(keys.length)];
+					frame.clear();
+					frame.putInt(EncryptionServer.REQUEST_HEADER + 8 * blocks).putInt(id).put(EncryptionServer.ENCRYPT)
+							.put((byte) sboxes).putLong(key).putInt(blocks);
+					for(int i=0 ; i < blocks ; i++) {
+						long block = random.nextLong();
+						if(i == 0) {
+							first[id % depth] = block;
+						}
+						frame.putLong(block);
+					}
+					frame.flip();
+					sentKeys.set(id % depth, key);
+					sent.set(id % depth, System.nanoTime());
+					while(frame.hasRemaining()) {
+						channel.write(frame);
+					}
+					id++;
+				}
+				// Wait for the last replies, then let the reader stop
+				window.acquire(depth);
+				count[0] = id;
+			} finally {
+				channel.shutdownOutput();
+			}
+			return null;
+		});
+		return pool.submit(() -> {
+			long[] latencies = new long[1 << 16];
+			int received = 0;
+			long verified = 0;
+			long errors = 0;
+			ByteBuffer header = ByteBuffer.allocate(4 + EncryptionServer.REPLY_HEADER);
+			ByteBuffer body = ByteBuffer.allocate(8 * Math.max(1, blocks));
+			try {
+				while(true) {
+					header.clear();
+					if(!readFully(channel, header)) {
+						break;
+					}
+					long now = System.nanoTime();
+					int length = header.getInt(0);
+					int id = header.getInt(4);
+					byte status = header.get(8);
+					if(id != received) {
+						throw new IOException("reply " + id + " instead of " + received);
+					}
+					int size = length - EncryptionServer.REPLY_HEADER;
+					if(body.capacity() < size) {
+						body = ByteBuffer.allocate(size);
+					}
+					body.clear().limit(size);
+					if(!readFully(channel, body)) {
+						throw new IOException("reply " + id + " cut short");
+					}
+					if(status != EncryptionServer.OK) {
+						errors++;
+					} else if(blocks > 0 && id % VERIFY_EVERY == 0) {
+						// The key is read first: its volatile write came after the block
+						KeySchedule key = KeySchedule.of(sentKeys.get(id % depth));
+						long expected = engine.encrypt(first[id % depth], key);
+						if(body.getLong(0) != expected) {
+							errors++;
+						}
+						verified++;
+					}
+					if(received == latencies.length) {
+						latencies = Arrays.copyOf(latencies, 2 * received);
+					}
+					latencies[received++] = now - sent.get(id % depth);
+					window.release();
+				}
+				writer.get();
+			} finally {
+				channel.close();
+			}
+			return new Result(Arrays.copyOf(latencies, received), count[0], verified, errors);
+		});
+	}
+
+	// Fills buffer; false at the end of the stream before the first byte.
+	private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer) < 0) {
+				if(buffer.position() == 0) {
+					return false;
+				}
+				throw new IOException("connection closed in the middle of a frame");
+			}
+		}
+		return true;
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		if(sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(p / 100 * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e3;
+	}
+
+	// Usage: LoadClient [port] [connections] [depth] [blocks] [seconds] [keys] [S-box set] [random seed]
+	// The S-box set is 0 for DES.S or the number the server gave to a set of
+	// random boxes, whose seed must then be given too so the replies can be
+	// checked.
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int blocks = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		double seconds = args.length > 4 ? Double.parseDouble(args[4]) : 10;
+		int keyCount = args.length > 5 ? Integer.parseInt(args[5]) : 256;
+		int sboxes = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+		byte[][] RS = args.length > 7 ? BatchCli.sboxes("random", Long.parseLong(args[7])) : DES.S;
+
+		SplittableRandom random = new SplittableRandom(42);
+		long[] keys = new long[keyCount];
+		for(int i=0 ; i < keyCount ; i++) {
+			keys[i] = random.nextLong();
+		}
+		LoadClient client = new LoadClient(new InetSocketAddress("localhost", port), depth, blocks, keys, sboxes, new BlockEngine(RS));
+		System.out.printf("%d connections, %d requests in flight each, %d blocks per request, %d keys, for %.1f s%n",
+				connections, depth, blocks, keyCount, seconds);
+		long start = System.nanoTime();
+		List<Result> results = client.run(connections, (long) (seconds * 1e9), random.nextLong());
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		long requests = 0;
+		long verified = 0;
+		long errors = 0;
+		for(Result result : results) {
+			requests += result.latencies.length;
+			verified += result.verified;
+			errors += result.errors;
+			if(result.requests != result.latencies.length) {
+				errors++;
+			}
+		}
+		long[] latencies = new long[(int) requests];
+		int at = 0;
+		for(Result result : results) {
+			System.arraycopy(result.latencies, 0, latencies, at, result.latencies.length);
+			at += result.latencies.length;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%d requests in %.2f s: %.0f requests, %.0f blocks (%.1f MB) per second%n",
+				requests, elapsed, requests / elapsed, requests * blocks / elapsed, requests * blocks * 8 / elapsed / 1e6);
+		System.out.printf("latency (us): p50 %.0f  p90 %.0f  p99 %.0f  p99.9 %.0f  max %.0f%n",
+				percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+				percentile(latencies, 99.9), percentile(latencies, 100));
+		System.out.println(verified + " replies checked, " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
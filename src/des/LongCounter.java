@@ -0,0 +1,147 @@
+package des;
+
+// Counts occurrences of long keys, such as output differences, without
+// boxing: an open addressing hash table with linear probing over two
+// parallel arrays. A slot is empty while its count is 0, so every long,
+// 0 included, can be a key. The table doubles when it is half full.
+//
+// A counter is not thread-safe; give every worker its own and merge them.
+final class LongCounter {
+	private long[] keys;
+	private long[] counts;
+	private int mask;
+	private int shift;
+	private int size;
+
+	LongCounter() {
+		this(1 << 10);
+	}
+
+	// capacity is rounded up to a power of two
+	LongCounter(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+		keys = new long[slots];
+		counts = new long[slots];
+		mask = slots - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(slots);
+	}
+
+	// Number of distinct keys
+	public int size() {
+		return size;
+	}
+
+	public void add(long key) {
+		add(key, 1);
+	}
+
+	public void add(long key, long delta) {
+		if(delta <= 0) {
+			throw new IllegalArgumentException("delta=" + delta);
+		}
+		int i = slot(key);
+		while(counts[i] != 0) {
+			if(keys[i] == key) {
+				counts[i] += delta;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		counts[i] = delta;
+		if(++size > (mask + 1) >>> 1) {
+			grow();
+		}
+	}
+
+	public long get(long key) {
+		int i = slot(key);
+		while(counts[i] != 0) {
+			if(keys[i] == key) {
+				return counts[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return 0;
+	}
+
+	// Sum of all the counts
+	public long total() {
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	// Adds every count of other to this counter.
+	public void addAll(LongCounter other) {
+		for(int i=0 ; i < other.counts.length ; i++) {
+			if(other.counts[i] != 0) {
+				add(other.keys[i], other.counts[i]);
+			}
+		}
+	}
+
+	interface Visitor {
+		void visit(long key, long count);
+	}
+
+	// Calls visitor for every key, in no particular order.
+	public void forEach(Visitor visitor) {
+		for(int i=0 ; i < counts.length ; i++) {
+			if(counts[i] != 0) {
+				visitor.visit(keys[i], counts[i]);
+			}
+		}
+	}
+
+	// The keys with the highest counts, highest first
+	public long[] top(int k) {
+		int n = Math.min(k, size);
+		long[] best = new long[n];
+		long[] bestCounts = new long[n];
+		int filled = 0;
+		for(int i=0 ; i < counts.length ; i++) {
+			long count = counts[i];
+			if(count == 0 || (filled == n && count <= bestCounts[n - 1])) {
+				continue;
+			}
+			// Insertion into the short sorted list
+			int j = filled < n ? filled++ : n - 1;
+			while(j > 0 && bestCounts[j - 1] < count) {
+				best[j] = best[j - 1];
+				bestCounts[j] = bestCounts[j - 1];
+				j--;
+			}
+			best[j] = keys[i];
+			bestCounts[j] = count;
+		}
+		return best;
+	}
+
+	private int slot(long key) {
+		// Fibonacci hashing spreads differences that only differ in a few
+		// bits over the whole table.
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldCounts = counts;
+		keys = new long[oldKeys.length << 1];
+		counts = new long[oldCounts.length << 1];
+		mask = keys.length - 1;
+		shift--;
+		for(int i=0 ; i < oldKeys.length ; i++) {
+			if(oldCounts[i] != 0) {
+				int j = slot(oldKeys[i]);
+				while(counts[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				counts[j] = oldCounts[i];
+			}
+		}
+	}
+}
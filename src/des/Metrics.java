@@ -0,0 +1,205 @@
+package des;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process wide counters, gauges and latency histograms for the cipher and
+// analysis code: blocks encrypted and decrypted, key schedules built, S-boxes
+// scored, DDT computation times and the depth of the queues of the batch
+// modes.
+//
+// The registry is off unless the JVM is started with -Ddes.metrics=true.
+// ENABLED is a static final, so with it off the JIT folds every update
+// into nothing and the instrumented code runs as before. Updates are
+// LongAdders and atomics that many threads can hit without a lock. While it
+// is on, Events.Snapshot puts the values and their rates into any Flight
+// Recorder recording once a second, and report() prints them.
+final class Metrics {
+	static final boolean ENABLED = Boolean.getBoolean("des.metrics");
+
+	// Filled by the constructors below, so it has to come first
+	private static final List<Object> REGISTRY = new ArrayList<>();
+
+	static final Counter ENCRYPTED = new Counter("blocks.encrypted");
+	static final Counter DECRYPTED = new Counter("blocks.decrypted");
+	static final Counter KEY_SCHEDULES = new Counter("keySchedules.built");
+	static final Counter SBOXES_SCORED = new Counter("sboxes.scored");
+	// One DifferentialTable.compute, and the DDT part of one SboxBatch.score
+	static final Histogram DDT_NANOS = new Histogram("ddt.nanos");
+	static final Histogram DDT_BATCH_NANOS = new Histogram("ddt.batch.nanos");
+	// Chunks BatchCli has handed to its workers and not written yet
+	static final Gauge BATCH_QUEUE = new Gauge("batch.queue");
+	// Requests EncryptionServer has read and not answered yet, and its
+	// batches waiting for or running on a worker
+	static final Gauge SERVER_PENDING = new Gauge("server.pending");
+	static final Gauge SERVER_TASKS = new Gauge("server.tasks");
+
+	static {
+		if(ENABLED) {
+			Events.registerSnapshot();
+		}
+	}
+
+	private Metrics() {
+	}
+
+	static final class Counter {
+		final String name;
+		private final LongAdder sum = new LongAdder();
+
+		private Counter(String name) {
+			this.name = name;
+			REGISTRY.add(this);
+		}
+
+		public void increment() {
+			if(ENABLED) {
+				sum.increment();
+			}
+		}
+
+		public void add(long n) {
+			if(ENABLED) {
+				sum.add(n);
+			}
+		}
+
+		public long sum() {
+			return sum.sum();
+		}
+
+		@Override
+		public String toString() {
+			return name + " " + sum();
+		}
+	}
+
+	// The current value of a queue depth and the highest it has been
+	static final class Gauge {
+		final String name;
+		private final AtomicLong value = new AtomicLong();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		private Gauge(String name) {
+			this.name = name;
+			REGISTRY.add(this);
+		}
+
+		public void add(long delta) {
+			if(ENABLED) {
+				max.accumulate(value.addAndGet(delta));
+			}
+		}
+
+		public void set(long depth) {
+			if(ENABLED) {
+				value.set(depth);
+				max.accumulate(depth);
+			}
+		}
+
+		public long value() {
+			return value.get();
+		}
+
+		public long max() {
+			return max.get();
+		}
+
+		@Override
+		public String toString() {
+			return name + " " + value() + " (max " + max() + ")";
+		}
+	}
+
+	// Durations in nanoseconds counted in powers of two: bucket b holds the
+	// values from 2^(b-1) to 2^b - 1, bucket 0 the zeros. Percentiles come
+	// out as the upper end of their bucket, within a factor of two, which is
+	// enough to tell a slow path from a fast one.
+	static final class Histogram {
+		final String name;
+		private final AtomicLongArray buckets = new AtomicLongArray(65);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		private Histogram(String name) {
+			this.name = name;
+			REGISTRY.add(this);
+		}
+
+		public void record(long nanos) {
+			if(ENABLED) {
+				long value = Math.max(0, nanos);
+				buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+				count.increment();
+				sum.add(value);
+				max.accumulate(value);
+			}
+		}
+
+		// Records the time since start, a value of Metrics.start()
+		public void recordSince(long start) {
+			if(ENABLED) {
+				record(System.nanoTime() - start);
+			}
+		}
+
+		public long count() {
+			return count.sum();
+		}
+
+		public double mean() {
+			long n = count();
+			return n == 0 ? 0 : sum.sum() / (double) n;
+		}
+
+		public long max() {
+			return max.get();
+		}
+
+		// Bound the p-th percentile (0 to 100) is below: the end of its bucket
+		public long percentile(double p) {
+			long n = count();
+			long rank = (long) Math.ceil(p / 100 * n);
+			long seen = 0;
+			for(int b=0 ; b < 65 ; b++) {
+				seen += buckets.get(b);
+				if(seen >= rank && seen > 0) {
+					return b == 64 ? Long.MAX_VALUE : 1L << b;
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			if(count() == 0) {
+				return name + " count 0";
+			}
+			return String.format("%s count %d, mean %.0f, p50 <%d, p99 <%d, max %d", name, count(), mean(),
+					percentile(50), percentile(99), max());
+		}
+	}
+
+	// A start time for Histogram.recordSince, not read when the registry is off
+	static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	static void blocks(boolean isDecrypt, long blocks) {
+		(isDecrypt ? DECRYPTED : ENCRYPTED).add(blocks);
+	}
+
+	// One line per metric
+	static void report(PrintStream out) {
+		for(Object metric : REGISTRY) {
+			out.println(metric);
+		}
+	}
+}
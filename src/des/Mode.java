@@ -0,0 +1,22 @@
+package des;
+
+// Block cipher modes supported by ModeCipher. ECB and CBC work on whole
+// blocks and pad the message with PKCS#5; CTR, OFB and CFB turn DES into a
+// stream cipher, so the output is exactly as long as the input.
+enum Mode {
+	ECB(true),
+	CBC(true),
+	CTR(false),
+	OFB(false),
+	CFB(false);
+
+	private final boolean padded;
+
+	Mode(boolean padded) {
+		this.padded = padded;
+	}
+
+	public boolean isPadded() {
+		return padded;
+	}
+}
@@ -0,0 +1,231 @@
+package des;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Encrypts or decrypts a message of any length with DES in one of the modes
+// of Mode, reading and writing whole batches of blocks instead of one 16
+// character hex string at a time. Data is fed with update() as it arrives
+// and the message is completed with doFinal(), which adds or checks the
+// PKCS#5 padding of ECB and CBC and processes the last partial block of the
+// stream modes. The cipher is then ready for the next message with the same
+// key and IV.
+//
+// A ModeCipher keeps the chaining state of the message being processed, so
+// unlike BlockEngine and KeySchedule it must not be shared between threads.
+final class ModeCipher {
+	// Size of the buffers used by the stream and channel methods
+	static final int BATCH_SIZE = 64 * 1024;
+
+	private final Mode mode;
+	private final BlockEngine engine;
+	private final KeySchedule key;
+	private final long iv;
+	private final boolean isDecrypt;
+
+	// Previous ciphertext block for CBC and CFB, last keystream block for OFB
+	// and the next counter value for CTR
+	private long register;
+	// Bytes of a block that has not been completed yet
+	private final byte[] pending = new byte[8];
+	private int pendingLength;
+
+	ModeCipher(Mode mode, BlockEngine engine, KeySchedule key, long iv, boolean isDecrypt) {
+		this.mode = mode;
+		this.engine = engine;
+		this.key = key;
+		this.iv = iv;
+		this.isDecrypt = isDecrypt;
+		this.register = iv;
+	}
+
+	// Upper bound of the bytes written by update() and doFinal() for the
+	// given number of input bytes, including anything still pending.
+	public int outputSize(int inputLength) {
+		int total = pendingLength + inputLength;
+		if(mode.isPadded() && !isDecrypt) {
+			return (total / 8 + 1) * 8;
+		}
+		return total;
+	}
+
+	// Processes every complete block of in and keeps the remaining bytes for
+	// the next call. A padded decryption always holds the last block back
+	// since it may carry the padding.
+	public void update(ByteBuffer in, ByteBuffer out) {
+		boolean holdLast = isDecrypt && mode.isPadded();
+		int start = out.position();
+		if(pendingLength > 0) {
+			while(pendingLength < 8 && in.hasRemaining()) {
+				pending[pendingLength++] = in.get();
+			}
+			if(pendingLength < 8 || (holdLast && !in.hasRemaining())) {
+				return;
+			}
+			putBlock(out, process(pendingBlock()));
+			pendingLength = 0;
+		}
+		// Whole blocks as long as a block is left after them for a padded
+		// decryption, so at most 8 bytes are ever kept
+		int keep = holdLast ? 8 : 0;
+		while(in.remaining() >= 8 && in.remaining() > keep) {
+			putBlock(out, process(getBlock(in)));
+		}
+		while(in.hasRemaining()) {
+			pending[pendingLength++] = in.get();
+		}
+		Metrics.blocks(isDecrypt, (out.position() - start) >>> 3);
+	}
+
+	// Processes the rest of the message and resets the cipher.
+	public void doFinal(ByteBuffer in, ByteBuffer out) {
+		update(in, out);
+		try {
+			if(!mode.isPadded()) {
+				// The keystream block is simply cut short for the last bytes
+				if(pendingLength > 0) {
+					for(int i=pendingLength ; i < 8 ; i++) {
+						pending[i] = 0;
+					}
+					long last = process(pendingBlock());
+					Metrics.blocks(isDecrypt, 1);
+					for(int i=0 ; i < pendingLength ; i++) {
+						out.put((byte) (last >>> (56 - 8*i)));
+					}
+				}
+			} else if(!isDecrypt) {
+				// PKCS#5: n bytes of value n, a whole block when the message
+				// already ends on a block boundary
+				int pad = 8 - pendingLength;
+				for(int i=pendingLength ; i < 8 ; i++) {
+					pending[i] = (byte) pad;
+				}
+				putBlock(out, process(pendingBlock()));
+				Metrics.blocks(isDecrypt, 1);
+			} else {
+				if(pendingLength != 8) {
+					throw new IllegalStateException("ciphertext length is not a multiple of 8 bytes");
+				}
+				long last = process(pendingBlock());
+				Metrics.blocks(isDecrypt, 1);
+				int pad = (int) last & 0xFF;
+				if(pad < 1 || pad > 8) {
+					throw new IllegalStateException("bad padding");
+				}
+				for(int i=8-pad ; i < 8 ; i++) {
+					if(((last >>> (56 - 8*i)) & 0xFF) != pad) {
+						throw new IllegalStateException("bad padding");
+					}
+				}
+				for(int i=0 ; i < 8-pad ; i++) {
+					out.put((byte) (last >>> (56 - 8*i)));
+				}
+			}
+		} finally {
+			reset();
+		}
+	}
+
+	// Encrypts or decrypts everything read from in until the end of the
+	// stream. Returns the number of bytes written to out.
+	public long transfer(InputStream in, OutputStream out) throws IOException {
+		byte[] input = new byte[BATCH_SIZE];
+		byte[] output = new byte[BATCH_SIZE + 16];
+		ByteBuffer outBuffer = ByteBuffer.wrap(output);
+		long written = 0;
+		int n;
+		while((n = in.read(input)) >= 0) {
+			outBuffer.clear();
+			update(ByteBuffer.wrap(input, 0, n), outBuffer);
+			out.write(output, 0, outBuffer.position());
+			written += outBuffer.position();
+		}
+		outBuffer.clear();
+		doFinal(ByteBuffer.allocate(0), outBuffer);
+		out.write(output, 0, outBuffer.position());
+		return written + outBuffer.position();
+	}
+
+	public long transfer(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		ByteBuffer input = ByteBuffer.allocateDirect(BATCH_SIZE);
+		ByteBuffer output = ByteBuffer.allocateDirect(BATCH_SIZE + 16);
+		long written = 0;
+		while(in.read(input) >= 0) {
+			input.flip();
+			update(input, output);
+			input.clear();
+			written += drain(output, out);
+		}
+		input.flip();
+		doFinal(input, output);
+		return written + drain(output, out);
+	}
+
+	public void reset() {
+		register = iv;
+		pendingLength = 0;
+	}
+
+	private static long drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+		buffer.flip();
+		int n = buffer.remaining();
+		while(buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+		return n;
+	}
+
+	// One block of the message through the chosen mode
+	private long process(long block) {
+		long keystream;
+		switch(mode) {
+		case ECB:
+			return isDecrypt ? engine.decrypt(block, key) : engine.encrypt(block, key);
+		case CBC:
+			if(isDecrypt) {
+				long plain = engine.decrypt(block, key) ^ register;
+				register = block;
+				return plain;
+			}
+			register = engine.encrypt(block ^ register, key);
+			return register;
+		case CTR:
+			keystream = engine.encrypt(register++, key);
+			return block ^ keystream;
+		case OFB:
+			register = engine.encrypt(register, key);
+			return block ^ register;
+		case CFB:
+			keystream = engine.encrypt(register, key);
+			register = isDecrypt ? block : block ^ keystream;
+			return block ^ keystream;
+		default:
+			throw new AssertionError(mode);
+		}
+	}
+
+	private long pendingBlock() {
+		long block = 0;
+		for(int i=0 ; i < 8 ; i++) {
+			block = (block << 8) | (pending[i] & 0xFF);
+		}
+		return block;
+	}
+
+	// Blocks are always read and written big endian, whatever the order the
+	// caller set on the buffer.
+	static long getBlock(ByteBuffer in) {
+		long block = in.getLong();
+		return in.order() == ByteOrder.BIG_ENDIAN ? block : Long.reverseBytes(block);
+	}
+
+	static void putBlock(ByteBuffer out, long block) {
+		out.putLong(out.order() == ByteOrder.BIG_ENDIAN ? block : Long.reverseBytes(block));
+	}
+}
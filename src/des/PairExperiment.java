@@ -0,0 +1,141 @@
+package des;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Chosen plaintext experiment: encrypts random pairs of blocks with a fixed
+// input difference through the first rounds of DES and counts how often
+// every output difference comes out, to check the probabilities that
+// DifferentialSearch predicts against the real cipher.
+//
+// Everything happens after the initial permutation, in the same L || R
+// terms as the characteristics: the input difference is L0 || R0 and the
+// outputs are Ln || Rn before any swap. Every worker draws its plaintexts
+// and a fresh key every PAIRS_PER_KEY pairs from its own SplittableRandom,
+// split in a fixed order from the seed, so a run can be repeated. Pairs are
+// encrypted a batch at a time and counted in a LongCounter per worker; the
+// counters are merged at the end.
+final class PairExperiment {
+	static final int BATCH = 1024;
+	static final int PAIRS_PER_KEY = 1 << 16;
+
+	private final BlockEngine engine;
+	private final int rounds;
+	private final long difference;
+
+	PairExperiment(BlockEngine engine, int rounds, long difference) {
+		if(rounds < 1 || rounds > 16) {
+			throw new IllegalArgumentException("rounds=" + rounds);
+		}
+		if(difference == 0) {
+			throw new IllegalArgumentException("the input difference must not be 0");
+		}
+		this.engine = engine;
+		this.rounds = rounds;
+		this.difference = difference;
+	}
+
+	// Encrypts the given number of pairs on the given number of threads and
+	// returns how many times every output difference was seen.
+	public LongCounter run(long pairs, long seed, int workers) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			SplittableRandom master = new SplittableRandom(seed);
+			List<Future<LongCounter>> results = new ArrayList<>();
+			for(int w=0 ; w < workers ; w++) {
+				long share = pairs / workers + (w < pairs % workers ? 1 : 0);
+				SplittableRandom random = master.split();
+				results.add(pool.submit(() -> count(random, share)));
+			}
+			LongCounter merged = null;
+			for(Future<LongCounter> result : results) {
+				LongCounter local = result.get();
+				if(merged == null || local.size() > merged.size()) {
+					// Merge into the biggest table, which then grows the least
+					if(merged != null) {
+						local.addAll(merged);
+					}
+					merged = local;
+				} else {
+					merged.addAll(local);
+				}
+			}
+			return merged;
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("experiment worker failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private LongCounter count(SplittableRandom random, long share) {
+		LongCounter counter = new LongCounter();
+		long[] blocks = new long[BATCH];
+		long[] differences = new long[BATCH];
+		long[] roundKeys = null;
+		for(long done=0 ; done < share ; ) {
+			if(done % PAIRS_PER_KEY == 0) {
+				roundKeys = KeySchedule.of(random.nextLong()).roundKeys();
+			}
+			// A batch never straddles a key change
+			int length = (int) Math.min(BATCH, Math.min(share - done, PAIRS_PER_KEY - done % PAIRS_PER_KEY));
+			for(int i=0 ; i < length ; i++) {
+				blocks[i] = random.nextLong();
+			}
+			engine.pairDifferences(blocks, 0, length, difference, roundKeys, rounds, differences);
+			for(int i=0 ; i < length ; i++) {
+				counter.add(differences[i]);
+			}
+			done += length;
+		}
+		return counter;
+	}
+
+	// Usage: PairExperiment [rounds] [pairs] [standard|random] [seed] [difference|best] [workers]
+	// With "best" the input difference is that of the best characteristic
+	// of the given number of rounds, and its predicted probability is
+	// printed next to the measured one.
+	public static void main(String[] args) throws InterruptedException {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long pairs = args.length > 1 ? Long.parseLong(args[1]) : 1 << 24;
+		String sboxes = args.length > 2 ? args[2] : "standard";
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+		String input = args.length > 4 ? args[4] : "best";
+		int workers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+		byte[][] RS = BatchCli.sboxes(sboxes, seed);
+		long difference;
+		DifferentialSearch.Characteristic characteristic = null;
+		if(input.equals("best")) {
+			characteristic = new DifferentialSearch(RS, ForkJoinPool.commonPool()).best(rounds);
+			System.out.print(characteristic);
+			difference = characteristic.inputDifference();
+		} else {
+			difference = HexCodec.parse(input);
+		}
+
+		PairExperiment experiment = new PairExperiment(new BlockEngine(RS), rounds, difference);
+		long start = System.nanoTime();
+		LongCounter counter = experiment.run(pairs, seed, workers);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d pairs through %d rounds with input difference %016x in %.2f s (%.0f pairs per second)%n",
+				pairs, rounds, difference, seconds, pairs / seconds);
+		System.out.println(counter.size() + " distinct output differences");
+		if(characteristic != null) {
+			long expected = characteristic.outputDifference();
+			long hits = counter.get(expected);
+			System.out.printf("%016x: %d pairs, measured 2^%.2f, predicted 2^%.2f%n",
+					expected, hits, Math.log(hits / (double) pairs) / Math.log(2), -characteristic.weight);
+		}
+		for(long top : counter.top(10)) {
+			long hits = counter.get(top);
+			System.out.printf("%016x: %d pairs (2^%.2f)%n", top, hits, Math.log(hits / (double) pairs) / Math.log(2));
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package des;
+
+// Receives the state of a block as it goes through the 16 rounds, for
+// teaching and debugging. The halves are the L and R values after the
+// initial permutation and after every round; the round keys are 48 bit
+// values as in KeySchedule. Every method does nothing by default.
+//
+// Encryption code takes NONE when nobody is watching. permute checks for it
+// and skips packing the state, and BlockEngine has a separate traced path,
+// so the untraced paths pay nothing for tracing.
+interface RoundObserver {
+	RoundObserver NONE = new RoundObserver() {
+	};
+
+	// L0 and R0, after the initial permutation
+	default void start(boolean isDecrypt, int l, int r) {
+	}
+
+	// L and R after round (1 to 16), which used roundKey
+	default void round(int round, long roundKey, int l, int r) {
+	}
+
+	// The block after the final permutation: the ciphertext when
+	// encrypting, the plaintext when decrypting
+	default void finish(long output) {
+	}
+}
@@ -0,0 +1,193 @@
+package des;
+
+// Scores up to LANES candidate S-boxes in one pass, with the L, R and e of
+// DifferentialTable, the differential branch number and the boomerang
+// uniformity of BoomerangTable, without building any of the tables.
+//
+// Two SWAR layouts are used, whichever suits the metric:
+//
+// - For the difference distribution, every S-box is bitsliced over its
+//   inputs: output bit i of S(x), for all 64 x, is one long. The derivative
+//   S(x) ^ S(x^dx) is then the xor of that long with itself with its bits
+//   moved by dx (a masked shift from one dx to the next), and the DDT entry
+//   of (dx, dy) is the population count of the x where all 4 derivative
+//   bits match dy. The entries come out without a histogram.
+// - For the boomerang table the 16 S-boxes sit side by side, one per nibble
+//   of a long indexed by x. The FBCT entry of (a, b) counts the x where the
+//   derivative in a is the same at x and x^b; one xor and a zero nibble test
+//   check that for all 16 S-boxes at once. Every quadruple x, x^a, x^b,
+//   x^a^b gives the same answer, so only one x in 4 is looked at, and the
+//   table is symmetric, so only b > a. The per lane counts are kept in
+//   nibbles and moved to bytes before they can overflow, and their maximum
+//   is taken byte by byte without unpacking.
+//
+// A batch is not thread safe; every worker uses its own.
+final class SboxBatch {
+	static final int LANES = 16;
+	// Bit 0 of every nibble
+	private static final long NIBBLE_ONES = 0x1111111111111111L;
+	private static final long LOW_NIBBLES = 0x0F0F0F0F0F0F0F0FL;
+	private static final long BYTE_HIGHS = 0x8080808080808080L;
+	// SPREAD[j]: the x with bit j clear, as a mask over the 64 inputs
+	private static final long[] SPREAD = new long[6];
+	private static final int[] INDEX = new int[64];
+
+	static {
+		for(int j=0 ; j < 6 ; j++) {
+			for(int x=0 ; x < 64 ; x++) {
+				if((x & (1 << j)) == 0) {
+					SPREAD[j] |= 1L << x;
+				}
+			}
+		}
+		for(int x=0 ; x < 64 ; x++) {
+			INDEX[x] = Sboxes.index(x);
+		}
+	}
+
+	// Results of the last score(), one entry per S-box of the batch
+	final int[] L = new int[LANES];
+	final int[] R = new int[LANES];
+	final int[] branchNumber = new int[LANES];
+	final int[] boomerang = new int[LANES];
+
+	private final long[] bits = new long[4];
+	private final long[] moved = new long[4];
+	private final long[] matches = new long[16];
+	private final long[] table = new long[64];
+	private final long[] derivative = new long[64];
+
+	public double e(int lane) {
+		return DifferentialTable.e(L[lane], R[lane]);
+	}
+
+	// Scores sboxes[from..from+count), 64 entries each in the layout of
+	// DES.S; the boomerang uniformity, the expensive part, only when asked.
+	public void score(byte[][] sboxes, int from, int count, boolean isBoomerang) {
+		if(count < 1 || count > LANES) {
+			throw new IllegalArgumentException("count=" + count);
+		}
+		long start = Metrics.start();
+		for(int k=0 ; k < count ; k++) {
+			byte[] sbox = sboxes[from + k];
+			if(sbox.length != 64) {
+				throw new IllegalArgumentException("S-box " + (from + k) + " has " + sbox.length + " entries instead of 64");
+			}
+			differential(sbox, k);
+		}
+		Metrics.DDT_BATCH_NANOS.recordSince(start);
+		if(isBoomerang) {
+			for(int x=0 ; x < 64 ; x++) {
+				long packed = 0;
+				for(int k=0 ; k < count ; k++) {
+					packed |= (long) (sboxes[from + k][INDEX[x]] & 0xF) << (4*k);
+				}
+				table[x] = packed;
+			}
+			boomerang(count);
+		}
+	}
+
+	private void differential(byte[] sbox, int lane) {
+		bits[0] = bits[1] = bits[2] = bits[3] = 0;
+		for(int x=0 ; x < 64 ; x++) {
+			int value = sbox[INDEX[x]];
+			for(int i=0 ; i < 4 ; i++) {
+				bits[i] |= (long) ((value >>> i) & 1) << x;
+			}
+		}
+		int maxEntry = 0;
+		int rCount = 0;
+		int branch = Integer.MAX_VALUE;
+		moved[0] = bits[0];
+		moved[1] = bits[1];
+		moved[2] = bits[2];
+		moved[3] = bits[3];
+		// dx runs through a Gray code, so the inputs are moved by a single
+		// bit from one dx to the next
+		for(int n=1 ; n < 64 ; n++) {
+			int dx = n ^ (n >>> 1);
+			int j = Integer.numberOfTrailingZeros(n);
+			int shift = 1 << j;
+			for(int i=0 ; i < 4 ; i++) {
+				long mask = moved[i];
+				moved[i] = ((mask & SPREAD[j]) << shift) | ((mask >>> shift) & SPREAD[j]);
+			}
+			// matches[dy]: the x whose derivative equals dy, built up one
+			// output bit at a time
+			matches[0] = ~(bits[3] ^ moved[3]);
+			matches[1] = ~matches[0];
+			for(int i=2, size=2 ; i >= 0 ; i--, size <<= 1) {
+				long d = bits[i] ^ moved[i];
+				for(int m=size-1 ; m >= 0 ; m--) {
+					matches[2*m + 1] = matches[m] & d;
+					matches[2*m] = matches[m] & ~d;
+				}
+			}
+			int inputWeight = Integer.bitCount(dx);
+			for(int dy=0 ; dy < 16 ; dy++) {
+				if(matches[dy] == 0) {
+					continue;
+				}
+				maxEntry = Math.max(maxEntry, Long.bitCount(matches[dy]));
+				if(dy == 0) {
+					rCount++;
+				}
+				branch = Math.min(branch, inputWeight + Integer.bitCount(dy));
+			}
+		}
+		L[lane] = maxEntry;
+		R[lane] = rCount;
+		branchNumber[lane] = branch;
+	}
+
+	private void boomerang(int count) {
+		long maxEven = 0;
+		long maxOdd = 0;
+		for(int a=1 ; a < 64 ; a++) {
+			for(int x=0 ; x < 64 ; x++) {
+				derivative[x] = table[x] ^ table[x ^ a];
+			}
+			for(int b=a+1 ; b < 64 ; b++) {
+				// x and x^b are the same case, and x and x^a too; a' = a or
+				// a^b, whichever lacks the top bit of b, gives the second bit
+				// that can be fixed to 0.
+				int highB = Integer.highestOneBit(b);
+				int highA = Integer.highestOneBit((a & highB) == 0 ? a : a ^ b);
+				// The 16 x with both bits clear are counted 8 to a nibble, as
+				// 16 would overflow it
+				int fixed = highA | highB;
+				long first = 0;
+				long second = 0;
+				int x = 0;
+				for(int k=0 ; k < 8 ; k++, x = ((x | fixed) + 1) & ~fixed) {
+					first += equal(derivative[x] ^ derivative[x ^ b]);
+				}
+				for(int k=0 ; k < 8 ; k++, x = ((x | fixed) + 1) & ~fixed) {
+					second += equal(derivative[x] ^ derivative[x ^ b]);
+				}
+				// Each count in 4 is the entry, at most 64, which fits a byte
+				long even = ((first & LOW_NIBBLES) + (second & LOW_NIBBLES)) << 2;
+				long odd = (((first >>> 4) & LOW_NIBBLES) + ((second >>> 4) & LOW_NIBBLES)) << 2;
+				maxEven = max(maxEven, even);
+				maxOdd = max(maxOdd, odd);
+			}
+		}
+		for(int k=0 ; k < count ; k++) {
+			long bytes = (k & 1) == 0 ? maxEven : maxOdd;
+			boomerang[k] = (int) (bytes >>> (8 * (k >>> 1))) & 0xFF;
+		}
+	}
+
+	// Bit 0 of every nibble of v that is 0
+	private static long equal(long v) {
+		return ~(v | (v >>> 1) | (v >>> 2) | (v >>> 3)) & NIBBLE_ONES;
+	}
+
+	// Byte by byte maximum of two longs of bytes below 128
+	private static long max(long x, long y) {
+		long isGreaterOrEqual = (((x | BYTE_HIGHS) - y) & BYTE_HIGHS) >>> 7;
+		long mask = isGreaterOrEqual * 0xFF;
+		return (x & mask) | (y & ~mask);
+	}
+}
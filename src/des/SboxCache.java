@@ -0,0 +1,86 @@
+package des;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Keeps the compiled BlockEngine of recently used S-box sets, so running the
+// same set again (the recommended S, a saved candidate) does not rebuild its
+// SP tables. Sets are looked up by content through SboxSet. The cache holds
+// at most capacity engines and drops the least recently used one when it is
+// full. It is safe to use from several threads; the compilation of a missing
+// set happens outside the lock.
+final class SboxCache {
+	private final int capacity;
+	private final LinkedHashMap<SboxSet, BlockEngine> engines;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	SboxCache(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		// Access order turns the map into an LRU list
+		this.engines = new LinkedHashMap<SboxSet, BlockEngine>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SboxSet, BlockEngine> eldest) {
+				if(size() > SboxCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public BlockEngine engine(byte[][] RS) {
+		return engine(SboxSet.of(RS));
+	}
+
+	public BlockEngine engine(SboxSet sboxes) {
+		synchronized(this) {
+			BlockEngine engine = engines.get(sboxes);
+			if(engine != null) {
+				hits++;
+				return engine;
+			}
+			misses++;
+		}
+		BlockEngine compiled = new BlockEngine(sboxes.toArray());
+		synchronized(this) {
+			// Another thread may have compiled the same set meanwhile; keep
+			// the engine that is already cached.
+			BlockEngine engine = engines.get(sboxes);
+			if(engine != null) {
+				return engine;
+			}
+			engines.put(sboxes, compiled);
+			return compiled;
+		}
+	}
+
+	public synchronized int size() {
+		return engines.size();
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SboxCache[size=" + engines.size() + "/" + capacity + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
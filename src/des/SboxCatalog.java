@@ -0,0 +1,581 @@
+package des;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Append-only file of evaluated S-boxes, so the candidates of long searches
+// outlive the run. Every S-box is a fixed RECORD_SIZE byte record, numbered
+// from 0 in the order of the appends:
+//
+//   0..31   the 64 entries in the layout of DES.S, two per byte, the even
+//           entry in the high nibble
+//   32      the position (0 to 7) the S-box was made for
+//   33, 34  L and R of its difference distribution table
+//   35, 36  nonlinearity and biggest |entry| of its linear approximation
+//           table
+//   37, 38  differential branch number and boomerang uniformity
+//   40..47  e
+//   48..55  a sequence number chosen by the caller, such as the candidate
+//           number of SboxSearch
+//
+// The records are read straight from the file, mapped in segments of
+// SEGMENT_RECORDS records, and never become heap objects. Appends go through
+// a buffer of APPEND_BATCH records and become visible to the readers when
+// the buffer is written out.
+//
+// The secondary index, in a file next to the catalog with ".idx" added, is
+// a bucket sort of the record numbers by (position, L, R). Its bucket
+// offsets are small enough to keep on the heap; the record numbers are
+// mapped. e only depends on L and R, so the best S-boxes of a position are
+// those of its non-empty buckets in decreasing order of e, and a query such
+// as "L <= 10" is a range of buckets. index() rebuilds the index from the
+// whole catalog. Records appended after it are bucketed on the heap by the
+// first query that sees them, and the queries share that tail until the
+// catalog grows again; past TAIL_LIMIT of them the queries refuse to run
+// until the next index().
+final class SboxCatalog implements Closeable {
+	static final int RECORD_SIZE = 64;
+	static final int HEADER_SIZE = 64;
+	static final int SEGMENT_RECORDS = 1 << 24;
+	static final int APPEND_BATCH = 1 << 12;
+	// Most records a query buckets on the heap, 32 MB of record numbers
+	static final int TAIL_LIMIT = 1 << 22;
+	static final long MAGIC = 0x4445535342584341L;
+	static final long INDEX_MAGIC = 0x44455353425849L;
+	// L goes from 0 to 64, R from 0 to 63
+	static final int BUCKETS = 8 * 65 * 64;
+	private static final int INDEX_HEADER_SIZE = 16 + 8 * (BUCKETS + 1);
+	private static final int INDEX_SEGMENT_INTS = 1 << 28;
+	// The 65*64 (L, R) pairs, 64*L + R, from the highest e to the lowest
+	private static final int[] E_ORDER = new int[65 * 64];
+
+	static {
+		Integer[] pairs = new Integer[E_ORDER.length];
+		for(int i=0 ; i < pairs.length ; i++) {
+			pairs[i] = i;
+		}
+		Arrays.sort(pairs, Comparator.comparingDouble((Integer p) -> -DifferentialTable.e(p >>> 6, p & 63)).thenComparingInt(p -> p));
+		for(int i=0 ; i < pairs.length ; i++) {
+			E_ORDER[i] = pairs[i];
+		}
+	}
+
+	interface Visitor {
+		// Returns false to stop the query
+		boolean visit(long record);
+	}
+
+	private final Path path;
+	private final Path indexPath;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final ByteBuffer pending = ByteBuffer.allocate(APPEND_BATCH * RECORD_SIZE);
+	// Records written to the file
+	private volatile long size;
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	private volatile long mapped;
+	// Bucket offsets and mapped record numbers of the index, if there is one
+	private volatile long indexed;
+	private volatile long[] offsets;
+	private volatile MappedByteBuffer[] indexSegments = new MappedByteBuffer[0];
+	// The records after the index as of the last query
+	private Tail tail;
+
+	// Opens the catalog at path, creating it if needed. A partial record at
+	// the end, left by a run that stopped while appending, is cut off.
+	SboxCatalog(Path path) throws IOException {
+		this.path = path;
+		this.indexPath = Paths.get(path + ".idx");
+		this.file = new RandomAccessFile(path.toFile(), "rw");
+		this.channel = file.getChannel();
+		if(channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(0, MAGIC).putInt(8, RECORD_SIZE);
+			channel.write(header, 0);
+		} else {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			channel.read(header, 0);
+			if(channel.size() < HEADER_SIZE || header.getLong(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+				file.close();
+				throw new IllegalArgumentException(path + " is not an S-box catalog");
+			}
+		}
+		this.size = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+		channel.truncate(HEADER_SIZE + size * RECORD_SIZE);
+		loadIndex();
+	}
+
+	// Number of records, those still in the append buffer included
+	public synchronized long size() {
+		return size + pending.position() / RECORD_SIZE;
+	}
+
+	public long indexed() {
+		return indexed;
+	}
+
+	// Appends one S-box and returns its record number.
+	public synchronized long append(int position, byte[] sbox, int L, int R, int nonlinearity, int maxLinear,
+			int branchNumber, int boomerang, long sequence) throws IOException {
+		long record = size();
+		encode(pending, position, sbox, L, R, nonlinearity, maxLinear, branchNumber, boomerang, sequence);
+		if(!pending.hasRemaining()) {
+			flush();
+		}
+		return record;
+	}
+
+	// Appends one S-box with its metrics computed here.
+	public long append(int position, byte[] sbox, long sequence) throws IOException {
+		int[] ddt = DifferentialTable.compute(sbox);
+		int[] lat = LinearTable.compute(sbox);
+		return append(position, sbox, DifferentialTable.l(ddt), DifferentialTable.r(ddt),
+				LinearTable.nonlinearity(lat), LinearTable.maxEntry(lat),
+				DifferentialTable.branchNumber(ddt), BoomerangTable.uniformity(BoomerangTable.compute(sbox)), sequence);
+	}
+
+	// Appends the whole records between 0 and the position of records, put
+	// there with encode(), so several threads can each fill a buffer of
+	// their own and append it in one go.
+	public synchronized void append(ByteBuffer records) throws IOException {
+		if(records.position() % RECORD_SIZE != 0) {
+			throw new IllegalArgumentException("partial record in a buffer of " + records.position() + " bytes");
+		}
+		flush();
+		records.flip();
+		long at = HEADER_SIZE + size * RECORD_SIZE;
+		long count = records.remaining() / RECORD_SIZE;
+		while(records.hasRemaining()) {
+			at += channel.write(records, at);
+		}
+		records.clear();
+		size += count;
+	}
+
+	// Puts one record at the position of out.
+	static void encode(ByteBuffer out, int position, byte[] sbox, int L, int R, int nonlinearity, int maxLinear,
+			int branchNumber, int boomerang, long sequence) {
+		if(position < 0 || position > 7 || L < 0 || L > 64 || R < 0 || R > 63) {
+			throw new IllegalArgumentException("position=" + position + ", L=" + L + ", R=" + R);
+		}
+		if(sbox.length != 64) {
+			throw new IllegalArgumentException("the S-box has " + sbox.length + " entries instead of 64");
+		}
+		int at = out.position();
+		for(int j=0 ; j < 64 ; j += 2) {
+			out.put(at + j/2, (byte) ((sbox[j] << 4) | (sbox[j+1] & 0xF)));
+		}
+		out.put(at + 32, (byte) position).put(at + 33, (byte) L).put(at + 34, (byte) R);
+		out.put(at + 35, (byte) nonlinearity).put(at + 36, (byte) maxLinear);
+		out.put(at + 37, (byte) branchNumber).put(at + 38, (byte) boomerang).put(at + 39, (byte) 0);
+		out.putDouble(at + 40, DifferentialTable.e(L, R)).putLong(at + 48, sequence).putLong(at + 56, 0);
+		out.position(at + RECORD_SIZE);
+	}
+
+	// Writes out the append buffer.
+	public synchronized void flush() throws IOException {
+		if(pending.position() > 0) {
+			long count = pending.position() / RECORD_SIZE;
+			pending.flip();
+			long at = HEADER_SIZE + size * RECORD_SIZE;
+			while(pending.hasRemaining()) {
+				at += channel.write(pending, at);
+			}
+			pending.clear();
+			size += count;
+		}
+	}
+
+	// The mapped segment holding record n
+	private ByteBuffer segment(long n) {
+		if(n < 0 || n >= size) {
+			throw new IllegalArgumentException("no record " + n + " in a catalog of " + size);
+		}
+		if(n >= mapped) {
+			map();
+		}
+		return segments[(int) (n / SEGMENT_RECORDS)];
+	}
+
+	// Maps the records written since the last call; only the last segment,
+	// which may have grown, is mapped again.
+	private synchronized void map() {
+		long count = size;
+		if(count <= mapped) {
+			return;
+		}
+		int from = (int) (mapped / SEGMENT_RECORDS);
+		int to = (int) ((count + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+		MappedByteBuffer[] grown = Arrays.copyOf(segments, to);
+		try {
+			for(int s=from ; s < to ; s++) {
+				long first = (long) s * SEGMENT_RECORDS;
+				long records = Math.min(SEGMENT_RECORDS, count - first);
+				grown[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+			}
+		} catch(IOException e) {
+			throw new IllegalStateException("cannot map " + path, e);
+		}
+		segments = grown;
+		mapped = count;
+	}
+
+	private static int offset(long n) {
+		return (int) (n % SEGMENT_RECORDS) * RECORD_SIZE;
+	}
+
+	public int position(long n) {
+		return segment(n).get(offset(n) + 32);
+	}
+
+	public int l(long n) {
+		return segment(n).get(offset(n) + 33);
+	}
+
+	public int r(long n) {
+		return segment(n).get(offset(n) + 34);
+	}
+
+	public int nonlinearity(long n) {
+		return segment(n).get(offset(n) + 35);
+	}
+
+	public double maxBias(long n) {
+		return segment(n).get(offset(n) + 36) / (double) LinearTable.INPUTS;
+	}
+
+	public int branchNumber(long n) {
+		return segment(n).get(offset(n) + 37);
+	}
+
+	public int boomerang(long n) {
+		return segment(n).get(offset(n) + 38);
+	}
+
+	public double e(long n) {
+		return segment(n).getDouble(offset(n) + 40);
+	}
+
+	public long sequence(long n) {
+		return segment(n).getLong(offset(n) + 48);
+	}
+
+	// Copies the 64 entries of record n into sbox.
+	public byte[] sbox(long n, byte[] sbox) {
+		ByteBuffer segment = segment(n);
+		int at = offset(n);
+		for(int j=0 ; j < 64 ; j += 2) {
+			int packed = segment.get(at + j/2);
+			sbox[j] = (byte) ((packed >>> 4) & 0xF);
+			sbox[j+1] = (byte) (packed & 0xF);
+		}
+		return sbox;
+	}
+
+	private static int bucket(int position, int L, int R) {
+		return (65*position + L) * 64 + R;
+	}
+
+	private int bucketOf(long n) {
+		ByteBuffer segment = segment(n);
+		int at = offset(n);
+		return bucket(segment.get(at + 32), segment.get(at + 33), segment.get(at + 34));
+	}
+
+	// Rebuilds the index over every record. The index is written to a
+	// temporary file and moved over the old one, so a failed run leaves the
+	// previous index usable.
+	public synchronized void index() throws IOException {
+		flush();
+		long count = size;
+		if(count > Integer.MAX_VALUE) {
+			throw new IllegalStateException(count + " records are too many to index");
+		}
+		long[] starts = new long[BUCKETS + 1];
+		for(long n=0 ; n < count ; n++) {
+			starts[bucketOf(n) + 1]++;
+		}
+		for(int b=0 ; b < BUCKETS ; b++) {
+			starts[b + 1] += starts[b];
+		}
+		Path temporary = Paths.get(indexPath + ".tmp");
+		try(RandomAccessFile out = new RandomAccessFile(temporary.toFile(), "rw")) {
+			out.setLength(0);
+			out.setLength(INDEX_HEADER_SIZE + 4 * count);
+			FileChannel output = out.getChannel();
+			MappedByteBuffer header = output.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE);
+			header.putLong(INDEX_MAGIC).putLong(count);
+			for(long start : starts) {
+				header.putLong(start);
+			}
+			header.force();
+			MappedByteBuffer[] records = mapIndex(output, count, FileChannel.MapMode.READ_WRITE);
+			long[] next = Arrays.copyOf(starts, BUCKETS);
+			for(long n=0 ; n < count ; n++) {
+				long k = next[bucketOf(n)]++;
+				records[(int) (k / INDEX_SEGMENT_INTS)].putInt((int) (k % INDEX_SEGMENT_INTS) * 4, (int) n);
+			}
+			for(MappedByteBuffer segment : records) {
+				segment.force();
+			}
+		}
+		Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		loadIndex();
+	}
+
+	// Maps the record numbers of an index file in segments.
+	private static MappedByteBuffer[] mapIndex(FileChannel channel, long count, FileChannel.MapMode mode) throws IOException {
+		MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((count + INDEX_SEGMENT_INTS - 1) / INDEX_SEGMENT_INTS)];
+		for(int s=0 ; s < segments.length ; s++) {
+			long first = (long) s * INDEX_SEGMENT_INTS;
+			long ints = Math.min(INDEX_SEGMENT_INTS, count - first);
+			segments[s] = channel.map(mode, INDEX_HEADER_SIZE + 4 * first, 4 * ints);
+		}
+		return segments;
+	}
+
+	// Reads the index file, if there is one that matches the catalog. An
+	// index of more records than the catalog holds belongs to another file
+	// and is ignored.
+	private synchronized void loadIndex() throws IOException {
+		indexed = 0;
+		offsets = null;
+		indexSegments = new MappedByteBuffer[0];
+		if(!Files.exists(indexPath)) {
+			return;
+		}
+		try(RandomAccessFile in = new RandomAccessFile(indexPath.toFile(), "r")) {
+			FileChannel input = in.getChannel();
+			if(input.size() < INDEX_HEADER_SIZE) {
+				return;
+			}
+			MappedByteBuffer header = input.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER_SIZE);
+			long count = header.getLong(8);
+			if(header.getLong(0) != INDEX_MAGIC || count > size || input.size() != INDEX_HEADER_SIZE + 4 * count) {
+				return;
+			}
+			long[] starts = new long[BUCKETS + 1];
+			for(int b=0 ; b <= BUCKETS ; b++) {
+				starts[b] = header.getLong(16 + 8*b);
+			}
+			// The mappings stay valid after the file is closed
+			indexSegments = mapIndex(input, count, FileChannel.MapMode.READ_ONLY);
+			offsets = starts;
+			indexed = count;
+		}
+	}
+
+	// Number of records of the given position (-1 for all of them) with
+	// L <= maxL and R <= maxR. The indexed records are counted from the
+	// bucket sizes alone.
+	public long count(int position, int maxL, int maxR) throws IOException {
+		Tail tail = tail();
+		long count = 0;
+		for(int b : buckets(position, maxL, maxR)) {
+			count += bucketSize(b) + tail.starts[b + 1] - tail.starts[b];
+		}
+		return count;
+	}
+
+	// Visits the records of the given position (-1 for all of them) with
+	// L <= maxL and R <= maxR, bucket by bucket.
+	public void select(int position, int maxL, int maxR, Visitor visitor) throws IOException {
+		Tail tail = tail();
+		for(int b : buckets(position, maxL, maxR)) {
+			if(!visitBucket(b, tail, visitor)) {
+				return;
+			}
+		}
+	}
+
+	private static int[] buckets(int position, int maxL, int maxR) {
+		if(position < -1 || position > 7) {
+			throw new IllegalArgumentException("position=" + position);
+		}
+		int first = position < 0 ? 0 : position;
+		int last = position < 0 ? 7 : position;
+		int ls = Math.max(0, Math.min(maxL, 64) + 1);
+		int rs = Math.max(0, Math.min(maxR, 63) + 1);
+		int[] buckets = new int[(last - first + 1) * ls * rs];
+		int k = 0;
+		for(int p=first ; p <= last ; p++) {
+			for(int L=0 ; L < ls ; L++) {
+				for(int R=0 ; R < rs ; R++) {
+					buckets[k++] = bucket(p, L, R);
+				}
+			}
+		}
+		return buckets;
+	}
+
+	// Visits up to limit records of the given position from the highest e to
+	// the lowest; records with the same e come in the order of the catalog.
+	public void best(int position, long limit, Visitor visitor) throws IOException {
+		if(position < 0 || position > 7) {
+			throw new IllegalArgumentException("position=" + position);
+		}
+		Tail tail = tail();
+		long[] left = { limit };
+		for(int pair : E_ORDER) {
+			int b = bucket(position, pair >>> 6, pair & 63);
+			boolean more = visitBucket(b, tail, n -> visitor.visit(n) && --left[0] > 0);
+			if(!more || left[0] <= 0) {
+				return;
+			}
+		}
+	}
+
+	// The best record of the given position, or -1 for an empty position
+	public long best(int position) throws IOException {
+		long[] best = { -1 };
+		best(position, 1, n -> {
+			best[0] = n;
+			return false;
+		});
+		return best[0];
+	}
+
+	private long bucketSize(int b) {
+		long[] starts = offsets;
+		return starts == null ? 0 : starts[b + 1] - starts[b];
+	}
+
+	private boolean visitBucket(int b, Tail tail, Visitor visitor) {
+		long[] starts = offsets;
+		if(starts != null) {
+			MappedByteBuffer[] records = indexSegments;
+			for(long k=starts[b] ; k < starts[b + 1] ; k++) {
+				int n = records[(int) (k / INDEX_SEGMENT_INTS)].getInt((int) (k % INDEX_SEGMENT_INTS) * 4);
+				if(!visitor.visit(n)) {
+					return false;
+				}
+			}
+		}
+		for(int k=tail.starts[b] ; k < tail.starts[b + 1] ; k++) {
+			if(!visitor.visit(tail.records[k])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The records from..to after the index, bucket sorted on the heap
+	private static final class Tail {
+		final long from;
+		final long to;
+		final int[] starts;
+		final long[] records;
+
+		Tail(long from, long to, int[] starts, long[] records) {
+			this.from = from;
+			this.to = to;
+			this.starts = starts;
+			this.records = records;
+		}
+	}
+
+	// The tail of the last query, built again only when records were
+	// appended or indexed since
+	private synchronized Tail tail() throws IOException {
+		flush();
+		long from = indexed;
+		long to = size;
+		if(tail != null && tail.from == from && tail.to == to) {
+			return tail;
+		}
+		if(to - from > TAIL_LIMIT) {
+			throw new IllegalStateException((to - from) + " records are not indexed; run index() first");
+		}
+		int[] starts = new int[BUCKETS + 1];
+		for(long n=from ; n < to ; n++) {
+			starts[bucketOf(n) + 1]++;
+		}
+		for(int b=0 ; b < BUCKETS ; b++) {
+			starts[b + 1] += starts[b];
+		}
+		long[] records = new long[(int) (to - from)];
+		int[] next = Arrays.copyOf(starts, BUCKETS);
+		for(long n=from ; n < to ; n++) {
+			records[next[bucketOf(n)]++] = n;
+		}
+		tail = new Tail(from, to, starts, records);
+		return tail;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	private static void print(SboxCatalog catalog, long n) {
+		byte[] sbox = catalog.sbox(n, new byte[64]);
+		StringBuilder entries = new StringBuilder();
+		for(int j=0 ; j < 64 ; j++) {
+			entries.append(j == 0 ? "" : ",").append(sbox[j]);
+		}
+		System.out.println("#" + n + "  Sbox " + (catalog.position(n) + 1) + "  L:  " + catalog.l(n) + "  R:  " + catalog.r(n)
+				+ "  e   : " + catalog.e(n) + "  NL: " + catalog.nonlinearity(n) + "  bias: " + catalog.maxBias(n)
+				+ "  branch: " + catalog.branchNumber(n) + "  FBCT: " + catalog.boomerang(n) + "  [" + entries + "]");
+	}
+
+	// Usage: SboxCatalog <file> info|index
+	//        SboxCatalog <file> best <position 1-8> [count]
+	//        SboxCatalog <file> select <position 1-8|all> <maxL> [maxR] [count]
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.out.println("Usage: SboxCatalog <file> info|index | best <position> [count] | select <position|all> <maxL> [maxR] [count]");
+			return;
+		}
+		try(SboxCatalog catalog = new SboxCatalog(Paths.get(args[0]))) {
+			switch(args[1]) {
+			case "info":
+				System.out.println(catalog.size() + " records, " + catalog.indexed() + " indexed");
+				for(int p=0 ; p < 8 ; p++) {
+					long best = catalog.best(p);
+					System.out.println("Sbox " + (p+1) + ": " + catalog.count(p, 64, 63) + " records"
+							+ (best < 0 ? "" : ", best e " + catalog.e(best)));
+				}
+				break;
+			case "index":
+				long start = System.nanoTime();
+				catalog.index();
+				System.out.printf("%d records indexed in %.2f s%n", catalog.indexed(), (System.nanoTime() - start) / 1e9);
+				break;
+			case "best":
+				catalog.best(Integer.parseInt(args[2]) - 1, args.length > 3 ? Long.parseLong(args[3]) : 10, n -> {
+					print(catalog, n);
+					return true;
+				});
+				break;
+			case "select":
+				int position = args[2].equals("all") ? -1 : Integer.parseInt(args[2]) - 1;
+				int maxL = Integer.parseInt(args[3]);
+				int maxR = args.length > 4 ? Integer.parseInt(args[4]) : 63;
+				long limit = args.length > 5 ? Long.parseLong(args[5]) : 10;
+				System.out.println(catalog.count(position, maxL, maxR) + " records");
+				long[] left = { limit };
+				catalog.select(position, maxL, maxR, n -> {
+					print(catalog, n);
+					return --left[0] > 0;
+				});
+				break;
+			default:
+				throw new IllegalArgumentException("unknown command " + args[1]);
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package des;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Local search for a strong S-box: starts from a random box and keeps
+// changing single entries or swapping two of them, accepting the changes by simulated annealing
+// (a plain hill climb when the temperature is 0). Candidates are scored with
+// the e = (1 - L/64)(1 - R/64) of RecommendedSboxesE.
+//
+// The DDT is not recomputed after a change. Changing the output of input x
+// only touches the pairs (x, x^dx), which sit in entry (dx, S(x)^S(x^dx)) of
+// row dx, each pair counted twice. So a change moves 2 from one entry of
+// every row dx != 0 to another: 63 updates instead of the 4096 pairs of a
+// full DifferentialTable.compute. L and R are kept up to date from a count
+// of how many entries hold each value and how many rows have a non-zero
+// dy = 0 entry.
+//
+// An optimizer is not thread-safe; run one per thread.
+final class SboxOptimizer {
+	private final SplittableRandom random;
+	// Entries by input x (not in the row and column layout of DES.S)
+	private final int[] s = new int[64];
+	private final int[] ddt = new int[DifferentialTable.SIZE];
+	// histogram[v]: number of entries outside row 0 that are equal to v
+	private final int[] histogram = new int[65];
+	private int L;
+	private int R;
+
+	SboxOptimizer(SplittableRandom random) {
+		this.random = random;
+		byte[] start = new byte[64];
+		Sboxes.random(random, start);
+		load(start);
+	}
+
+	// Starts over from the given S-box in the layout of DES.S.
+	public void load(byte[] sbox) {
+		for(int x=0 ; x < 64 ; x++) {
+			s[x] = sbox[Sboxes.index(x)] & 0xF;
+		}
+		DifferentialTable.compute(sbox, ddt);
+		Arrays.fill(histogram, 0);
+		for(int i=DifferentialTable.OUTPUTS ; i < DifferentialTable.SIZE ; i++) {
+			histogram[ddt[i]]++;
+		}
+		L = DifferentialTable.l(ddt);
+		R = DifferentialTable.r(ddt);
+	}
+
+	public int l() {
+		return L;
+	}
+
+	public int r() {
+		return R;
+	}
+
+	public double e() {
+		return DifferentialTable.e(L, R);
+	}
+
+	// Copies the current S-box into sbox in the layout of DES.S.
+	public void sbox(byte[] sbox) {
+		for(int x=0 ; x < 64 ; x++) {
+			sbox[Sboxes.index(x)] = (byte) s[x];
+		}
+	}
+
+	// The DDT of the current S-box, the layout of DifferentialTable. It is
+	// updated in place by every step.
+	int[] ddt() {
+		return ddt;
+	}
+
+	// Sets the output of input x to value and updates the DDT, L and R.
+	public void set(int x, int value) {
+		int old = s[x];
+		if(old == value) {
+			return;
+		}
+		for(int dx=1 ; dx < 64 ; dx++) {
+			int other = s[x ^ dx];
+			int row = dx << 4;
+			move(row | (old ^ other), -2);
+			move(row | (value ^ other), 2);
+		}
+		s[x] = value;
+		// L can only have dropped when its last entries went down
+		while(histogram[L] == 0) {
+			L--;
+		}
+	}
+
+	private void move(int entry, int delta) {
+		int before = ddt[entry];
+		int after = before + delta;
+		ddt[entry] = after;
+		histogram[before]--;
+		histogram[after]++;
+		if(after > L) {
+			L = after;
+		}
+		if((entry & 0xF) == 0) {
+			// entry is in the dy = 0 column that R looks at
+			if(before == 0) {
+				R++;
+			} else if(after == 0) {
+				R--;
+			}
+		}
+	}
+
+	// The score the search maximizes: e first, then fewer entries equal to L,
+	// which lets the search make progress between two values of L.
+	private double score() {
+		return e() - histogram[L] / 65536.0;
+	}
+
+	// Runs the given number of steps, cooling the temperature linearly from
+	// startTemperature down to 0, and leaves the best S-box found loaded.
+	public void optimize(long steps, double startTemperature) {
+		byte[] best = new byte[64];
+		sbox(best);
+		double bestScore = score();
+		double current = bestScore;
+		for(long step=0 ; step < steps ; step++) {
+			double temperature = startTemperature * (1 - (double) step / steps);
+			// Half of the steps swap two entries, which keeps the number of
+			// times every output value occurs; the others change one entry.
+			int x = random.nextInt(64);
+			int y = random.nextInt(64);
+			int oldX = s[x];
+			int oldY = s[y];
+			boolean swap = random.nextBoolean();
+			if(swap) {
+				set(x, oldY);
+				set(y, oldX);
+			} else {
+				int value = random.nextInt(15);
+				set(x, value >= oldX ? value + 1 : value);
+			}
+			double candidate = score();
+			if(candidate >= current
+					|| (temperature > 0 && random.nextDouble() < Math.exp((candidate - current) / temperature))) {
+				current = candidate;
+				if(candidate > bestScore) {
+					bestScore = candidate;
+					sbox(best);
+				}
+			} else {
+				set(y, oldY);
+				set(x, oldX);
+			}
+		}
+		load(best);
+	}
+
+	// Usage: SboxOptimizer [steps] [seed] [temperature]
+	// Optimizes one S-box for every one of the 8 positions and prints them
+	// with their L, R and e.
+	public static void main(String[] args) {
+		long steps = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		double temperature = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+		System.out.println("Optimizing with " + steps + " steps per S-box, seed " + seed + ", temperature " + temperature);
+		SplittableRandom master = new SplittableRandom(seed);
+		byte[] sbox = new byte[64];
+		for(int position=0 ; position < 8 ; position++) {
+			SboxOptimizer optimizer = new SboxOptimizer(master.split());
+			double start = optimizer.e();
+			long begin = System.nanoTime();
+			optimizer.optimize(steps, temperature);
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			optimizer.sbox(sbox);
+			StringBuilder entries = new StringBuilder();
+			for(int j=0 ; j < 64 ; j++) {
+				entries.append(j == 0 ? "" : ",").append(sbox[j]);
+			}
+			System.out.println("\nSbox " + (position+1));
+			System.out.println(entries);
+			System.out.printf("L:  %d  R:  %d  e   : %s (from %s, %.0f steps per second)%n",
+					optimizer.l(), optimizer.r(), optimizer.e(), start, steps / seconds);
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package des;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Random S-box search: generates candidate S-boxes on several threads,
+// scores each one with the L, R and e values of RecommendedSboxesE and keeps
+// the best topK boxes for every one of the 8 positions. Candidates are drawn
+// and scored SboxBatch.LANES at a time, which also gives their branch
+// number. The boomerang uniformity costs as much again as the rest of the
+// scoring and plays no part in the ranking, so it is only worked out for the
+// candidates that make it into a leaderboard, unless every candidate goes
+// into a catalog.
+//
+// Every worker draws from its own SplittableRandom, split in a fixed order
+// from one generator seeded with the master seed, and evaluates a fixed
+// share of the candidates, so the same seed, candidate count and worker
+// count always give the same leaderboard.
+//
+// With a catalog every candidate is also appended to it, with its linear
+// metrics, in batches of SboxCatalog.APPEND_BATCH records per worker, and
+// main indexes the catalog once the search is over.
+final class SboxSearch {
+	private final long seed;
+	private final long candidates;
+	private final int topK;
+	private final int workers;
+	private final SboxCatalog catalog;
+	private final LongAdder evaluated = new LongAdder();
+
+	SboxSearch(long seed, long candidates, int topK, int workers) {
+		this(seed, candidates, topK, workers, null);
+	}
+
+	SboxSearch(long seed, long candidates, int topK, int workers, SboxCatalog catalog) {
+		if(candidates < 0 || topK < 1 || workers < 1) {
+			throw new IllegalArgumentException("candidates=" + candidates + ", topK=" + topK + ", workers=" + workers);
+		}
+		this.seed = seed;
+		this.candidates = candidates;
+		this.topK = topK;
+		this.workers = workers;
+		this.catalog = catalog;
+	}
+
+	// A scored S-box. sequence identifies the candidate within the run
+	// (worker number in the upper bits) and breaks ties between equal scores.
+	static final class Candidate implements Comparable<Candidate> {
+		final int position;
+		final long sequence;
+		final byte[] sbox;
+		final int L;
+		final int R;
+		final double e;
+		final int branchNumber;
+		final int boomerang;
+
+		Candidate(int position, long sequence, byte[] sbox, int L, int R, double e, int branchNumber, int boomerang) {
+			this.position = position;
+			this.sequence = sequence;
+			this.sbox = sbox;
+			this.L = L;
+			this.R = R;
+			this.e = e;
+			this.branchNumber = branchNumber;
+			this.boomerang = boomerang;
+		}
+
+		// Natural order from worst to best: lower e first, and the later of
+		// two candidates with the same e first.
+		@Override
+		public int compareTo(Candidate other) {
+			int byScore = Double.compare(e, other.e);
+			return byScore != 0 ? byScore : Long.compare(other.sequence, sequence);
+		}
+	}
+
+	// Number of candidates scored so far, readable while the search runs
+	public long evaluated() {
+		return evaluated.sum();
+	}
+
+	// Runs the search and returns, for every position, its best candidates
+	// from best to worst.
+	public List<List<Candidate>> run() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			SplittableRandom master = new SplittableRandom(seed);
+			List<Future<List<PriorityQueue<Candidate>>>> results = new ArrayList<>();
+			for(int w=0 ; w < workers ; w++) {
+				long share = candidates / workers + (w < candidates % workers ? 1 : 0);
+				SplittableRandom random = master.split();
+				long base = (long) w << 40;
+				results.add(pool.submit(() -> search(random, share, base)));
+			}
+			List<PriorityQueue<Candidate>> merged = newLeaderboard();
+			for(Future<List<PriorityQueue<Candidate>>> result : results) {
+				List<PriorityQueue<Candidate>> local = result.get();
+				for(int position=0 ; position < 8 ; position++) {
+					for(Candidate candidate : local.get(position)) {
+						offer(merged.get(position), candidate);
+					}
+				}
+			}
+			List<List<Candidate>> best = new ArrayList<>();
+			for(PriorityQueue<Candidate> heap : merged) {
+				List<Candidate> sorted = new ArrayList<>(heap);
+				Collections.sort(sorted, Collections.reverseOrder());
+				best.add(sorted);
+			}
+			return best;
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("search worker failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private List<PriorityQueue<Candidate>> search(SplittableRandom random, long share, long base) {
+		List<PriorityQueue<Candidate>> leaderboard = newLeaderboard();
+		byte[][] sboxes = new byte[SboxBatch.LANES][64];
+		SboxBatch batch = new SboxBatch();
+		int[] LAT = catalog == null ? null : new int[LinearTable.SIZE];
+		ByteBuffer records = catalog == null ? null : ByteBuffer.allocate(SboxCatalog.APPEND_BATCH * SboxCatalog.RECORD_SIZE);
+		boolean isBoomerang = catalog != null;
+		Events.SboxScoring event = new Events.SboxScoring();
+		event.begin();
+		for(long n=0 ; n < share ; ) {
+			int count = (int) Math.min(SboxBatch.LANES, share - n);
+			for(int k=0 ; k < count ; k++) {
+				Sboxes.random(random, sboxes[k]);
+			}
+			batch.score(sboxes, 0, count, isBoomerang);
+			for(int k=0 ; k < count ; k++, n++) {
+				int position = (int) (n & 7);
+				byte[] sbox = sboxes[k];
+				int L = batch.L[k];
+				int R = batch.R[k];
+				double e = batch.e(k);
+				PriorityQueue<Candidate> heap = leaderboard.get(position);
+				// Only copy the S-box when it makes it into the heap
+				if(heap.size() < topK || e >= heap.peek().e) {
+					int boomerang = isBoomerang ? batch.boomerang[k] : BoomerangTable.uniformity(BoomerangTable.compute(sbox));
+					offer(heap, new Candidate(position, base + n, sbox.clone(), L, R, e, batch.branchNumber[k], boomerang));
+				}
+				if(catalog != null) {
+					LinearTable.compute(sbox, LAT);
+					SboxCatalog.encode(records, position, sbox, L, R, LinearTable.nonlinearity(LAT), LinearTable.maxEntry(LAT),
+							batch.branchNumber[k], batch.boomerang[k], base + n);
+					if(!records.hasRemaining()) {
+						append(records);
+					}
+				}
+			}
+			// n stays a multiple of LANES, which divides 1024, until the end
+			if((n & 1023) == 0) {
+				evaluated.add(1024);
+				scored(event, 1024);
+				event = new Events.SboxScoring();
+				event.begin();
+			}
+		}
+		evaluated.add(share & 1023);
+		if((share & 1023) != 0) {
+			scored(event, share & 1023);
+		}
+		if(catalog != null) {
+			append(records);
+		}
+		return leaderboard;
+	}
+
+	private static void scored(Events.SboxScoring event, long sboxes) {
+		Metrics.SBOXES_SCORED.add(sboxes);
+		event.sboxes = sboxes;
+		event.commit();
+	}
+
+	private void append(ByteBuffer records) {
+		try {
+			catalog.append(records);
+		} catch(IOException e) {
+			throw new RuntimeException("cannot append to the catalog", e);
+		}
+	}
+
+	private List<PriorityQueue<Candidate>> newLeaderboard() {
+		List<PriorityQueue<Candidate>> leaderboard = new ArrayList<>();
+		for(int position=0 ; position < 8 ; position++) {
+			leaderboard.add(new PriorityQueue<Candidate>());
+		}
+		return leaderboard;
+	}
+
+	// The heap is a min-heap of at most topK entries; the worst of them is at
+	// the top and is the one that makes room for a better candidate.
+	private void offer(PriorityQueue<Candidate> heap, Candidate candidate) {
+		if(heap.size() < topK) {
+			heap.add(candidate);
+		} else if(candidate.compareTo(heap.peek()) > 0) {
+			heap.poll();
+			heap.add(candidate);
+		}
+	}
+
+	// Usage: SboxSearch [candidates] [seed] [topK] [workers] [catalog]
+	public static void main(String[] args) throws InterruptedException, IOException {
+		long candidates = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		int topK = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		SboxCatalog catalog = args.length > 4 ? new SboxCatalog(Paths.get(args[4])) : null;
+		System.out.println("Searching " + candidates + " random S-boxes with seed " + seed + " on " + workers + " threads");
+
+		SboxSearch search = new SboxSearch(seed, candidates, topK, workers, catalog);
+		long start = System.nanoTime();
+		// Progress is reported every second while the search runs
+		Thread reporter = new Thread(() -> {
+			try {
+				while(true) {
+					TimeUnit.SECONDS.sleep(1);
+					long done = search.evaluated();
+					double seconds = (System.nanoTime() - start) / 1e9;
+					System.out.printf("%d / %d S-boxes, %.0f per second%n", done, candidates, done / seconds);
+				}
+			} catch(InterruptedException e) {
+				// search finished
+			}
+		});
+		reporter.setDaemon(true);
+		reporter.start();
+		List<List<Candidate>> best = search.run();
+		reporter.interrupt();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d S-boxes scored in %.2f s (%.0f per second)%n", candidates, seconds, candidates / seconds);
+		if(catalog != null) {
+			catalog.index();
+			catalog.close();
+			System.out.println("Appended to " + args[4] + ", which now holds " + catalog.size() + " S-boxes, all indexed");
+		}
+		if(Metrics.ENABLED) {
+			Metrics.report(System.out);
+		}
+
+		for(int position=0 ; position < 8 ; position++) {
+			System.out.println("\nSbox " + (position+1));
+			for(Candidate candidate : best.get(position)) {
+				StringBuilder entries = new StringBuilder();
+				for(int j=0 ; j < 64 ; j++) {
+					entries.append(j == 0 ? "" : ",").append(candidate.sbox[j]);
+				}
+				System.out.println("L:  " + candidate.L + "  R:  " + candidate.R + "  e   : " + candidate.e
+						+ "  branch: " + candidate.branchNumber + "  FBCT: " + candidate.boomerang + "  [" + entries + "]");
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package des;
+
+import java.util.Arrays;
+
+// An immutable copy of a set of 8 S-boxes (the layout of DES.S and of the RS
+// tables made by sboxesGenerator) that compares and hashes by content. The
+// 512 entries are packed as nibbles into 32 longs, so two sets are equal
+// when they hold the same values, whichever arrays they came from.
+final class SboxSet {
+	private final long[] packed = new long[32];
+	private final int hash;
+
+	private SboxSet(byte[][] RS) {
+		if(RS.length != 8) {
+			throw new IllegalArgumentException("expected 8 S-boxes, got " + RS.length);
+		}
+		for(int i=0 ; i < 8 ; i++) {
+			if(RS[i].length != 64) {
+				throw new IllegalArgumentException("S-box " + (i+1) + " has " + RS[i].length + " entries instead of 64");
+			}
+			for(int j=0 ; j < 64 ; j++) {
+				int value = RS[i][j];
+				if(value < 0 || value > 15) {
+					throw new IllegalArgumentException("S-box " + (i+1) + " entry " + j + " is not a 4 bit value: " + value);
+				}
+				int n = 64*i + j;
+				packed[n >>> 4] |= (long) value << (4 * (n & 15));
+			}
+		}
+		this.hash = Arrays.hashCode(packed);
+	}
+
+	public static SboxSet of(byte[][] RS) {
+		return new SboxSet(RS);
+	}
+
+	// Entry j (0 to 63, row*16 + column) of S-box i (0 to 7)
+	public int get(int i, int j) {
+		int n = 64*i + j;
+		return (int) (packed[n >>> 4] >>> (4 * (n & 15))) & 0xF;
+	}
+
+	// A fresh byte[8][64] copy that can be handed to the code taking RS
+	public byte[][] toArray() {
+		byte[][] RS = new byte[8][64];
+		for(int i=0 ; i < 8 ; i++) {
+			for(int j=0 ; j < 64 ; j++) {
+				RS[i][j] = (byte) get(i, j);
+			}
+		}
+		return RS;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof SboxSet && Arrays.equals(packed, ((SboxSet) other).packed);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "SboxSet@" + Integer.toHexString(hash);
+	}
+}
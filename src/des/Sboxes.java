@@ -0,0 +1,31 @@
+package des;
+
+import java.util.SplittableRandom;
+
+// Helpers shared by everything that reads an S-box set laid out like DES.S or
+// the RS tables built by DES.sboxesGenerator: 8 boxes of 64 entries, 4 rows of
+// 16 columns each.
+final class Sboxes {
+	private Sboxes() {
+	}
+
+	// Maps a 6 bit S-box input b1..b6 to its entry in the 64 element table.
+	// The outer bits b1 and b6 give the row and the inner bits b2..b5 give the
+	// column, exactly like sBlock does with strings.
+	static int index(int x) {
+		int row = ((x >>> 4) & 2) | (x & 1);
+		int column = (x >>> 1) & 0xF;
+		return (row << 4) | column;
+	}
+
+	// Fills sbox with 64 random 4 bit entries, 16 of them from every long
+	// drawn from the generator.
+	static void random(SplittableRandom random, byte[] sbox) {
+		for(int i=0 ; i < 64 ; i += 16) {
+			long bits = random.nextLong();
+			for(int j=0 ; j < 16 ; j++, bits >>>= 4) {
+				sbox[i + j] = (byte) (bits & 0xF);
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package des;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Writes the rounds of a block in the layout permute always printed: L0 and
+// R0, then the round key, L and R of every round, then the encrypted or
+// decrypted text. The text of a block is built in memory and written in one
+// piece when the block is finished.
+final class TextRoundTracer implements RoundObserver {
+	private static final String NEW_LINE = System.lineSeparator();
+
+	private final Appendable out;
+	private final StringBuilder text = new StringBuilder(1024);
+	private boolean isDecrypt;
+
+	TextRoundTracer(Appendable out) {
+		this.out = out;
+	}
+
+	@Override
+	public void start(boolean isDecrypt, int l, int r) {
+		this.isDecrypt = isDecrypt;
+		text.append(NEW_LINE).append("L0 = ");
+		hex(l & 0xFFFFFFFFL, 8).append(NEW_LINE).append("R0 = ");
+		hex(r & 0xFFFFFFFFL, 8).append(NEW_LINE);
+	}
+
+	@Override
+	public void round(int round, long roundKey, int l, int r) {
+		text.append(NEW_LINE).append("-------------").append(NEW_LINE);
+		text.append("Round ").append(round).append(':').append(NEW_LINE);
+		text.append("Round key = ");
+		hex(roundKey, 12).append(NEW_LINE).append("L = ");
+		hex(l & 0xFFFFFFFFL, 8).append(NEW_LINE).append("R = ");
+		hex(r & 0xFFFFFFFFL, 8).append(NEW_LINE);
+	}
+
+	@Override
+	public void finish(long output) {
+		text.append(isDecrypt ? "Decrypted text: " : "Encrypted text: ");
+		HexCodec.append(text, output, 16, true).append(NEW_LINE);
+		try {
+			out.append(text);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		text.setLength(0);
+	}
+
+	// Appends the low digits*4 bits of value as lower case hex digits.
+	private StringBuilder hex(long value, int digits) {
+		return HexCodec.append(text, value, digits, false);
+	}
+}
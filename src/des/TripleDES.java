@@ -0,0 +1,55 @@
+package des;
+
+// Triple DES in encrypt-decrypt-encrypt form with two (EDE2, k3 = k1) or three
+// independent keys (EDE3). The 48 round keys of the three stages are laid out
+// once in one array. A block goes through IP once, then the 48 rounds, then FP
+// once: the FP at the end of a stage and the IP at the start of the next one
+// are inverse permutations and cancel out, so only the swap of the halves
+// that ends every stage is left between them.
+//
+// Like BlockEngine and KeySchedule, a TripleDES is immutable and may be
+// shared between threads.
+final class TripleDES {
+	private final BlockEngine engine;
+	// k1 round keys, then k2, then k3, each in the order they are generated
+	private final long[] roundKeys = new long[48];
+
+	TripleDES(BlockEngine engine, KeySchedule k1, KeySchedule k2, KeySchedule k3) {
+		this.engine = engine;
+		System.arraycopy(k1.roundKeys(), 0, roundKeys, 0, 16);
+		System.arraycopy(k2.roundKeys(), 0, roundKeys, 16, 16);
+		System.arraycopy(k3.roundKeys(), 0, roundKeys, 32, 16);
+	}
+
+	// Two key variant
+	TripleDES(BlockEngine engine, KeySchedule k1, KeySchedule k2) {
+		this(engine, k1, k2, k1);
+	}
+
+	public static TripleDES of(BlockEngine engine, long k1, long k2, long k3) {
+		return new TripleDES(engine, KeySchedule.of(k1), KeySchedule.of(k2), KeySchedule.of(k3));
+	}
+
+	public static TripleDES of(BlockEngine engine, long k1, long k2) {
+		KeySchedule first = KeySchedule.of(k1);
+		return new TripleDES(engine, first, KeySchedule.of(k2), first);
+	}
+
+	// E(k1), D(k2), E(k3)
+	public long encrypt(long block) {
+		long state = BlockEngine.IP.permute(block);
+		state = engine.rounds(state, roundKeys, 0, 1);
+		state = engine.rounds(state, roundKeys, 31, -1);
+		state = engine.rounds(state, roundKeys, 32, 1);
+		return BlockEngine.FP.permute(state);
+	}
+
+	// D(k3), E(k2), D(k1)
+	public long decrypt(long block) {
+		long state = BlockEngine.IP.permute(block);
+		state = engine.rounds(state, roundKeys, 47, -1);
+		state = engine.rounds(state, roundKeys, 16, 1);
+		state = engine.rounds(state, roundKeys, 15, -1);
+		return BlockEngine.FP.permute(state);
+	}
+}